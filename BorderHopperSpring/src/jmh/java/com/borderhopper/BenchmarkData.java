@@ -0,0 +1,159 @@
+package com.borderhopper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.opengis.referencing.operation.MathTransform;
+
+// The datasets the benchmarks run on, read and connected the way DbInitializer does it. Country and Opstina need the
+// GeoJSON files in src/main/resources, Grid is generated so the benchmarks also run on a checkout without them.
+final class BenchmarkData {
+
+    static final String DATASETS = "Country,Opstina,Grid";
+
+    // Tolerance is the one DbInitializer uses for both steps, simplifier the way it simplifies the geometries of the type
+    record Dataset(String name, Map<String, Geometry> geometries, double tolerance, UnaryOperator<Geometry> simplifier) {
+
+        String[] unitNames() {
+            return geometries.keySet().toArray(new String[0]);
+        }
+    }
+
+    // A start, an end and the units guessed so far
+    record Position(int start, int end, BitSet unitsGuessed) {
+    }
+
+    private BenchmarkData() {
+    }
+
+    static Dataset load(String dataset) throws Exception {
+        switch (dataset) {
+            case "Country":
+                // Small countries are kept as they are so that they don't disappear
+                return new Dataset(dataset, DbInitializer.readFeatures("/countries.geojson", "ADMIN", UnaryOperator.identity(), null), 0.02,
+                        geometry -> geometry.getArea() > 1 && geometry.getNumPoints() > 100 ? DouglasPeuckerSimplifier.simplify(geometry, 0.02) : geometry);
+            case "Opstina":
+                MathTransform transform = CRS.findMathTransform(CRS.decode("EPSG:32634"), CRS.decode("EPSG:4326", true), false);
+                return new Dataset(dataset, DbInitializer.readFeatures("/opstine.geojson", "opstina_imel", DbInitializer::processOpstinaName, transform), 0.0005,
+                        geometry -> TopologyPreservingSimplifier.simplify(geometry, 0.0005));
+            case "Grid":
+                return new Dataset(dataset, grid(30, 40, 0.1), 0.0005, geometry -> TopologyPreservingSimplifier.simplify(geometry, 0.0005));
+            default:
+                throw new IllegalArgumentException("Unknown dataset " + dataset);
+        }
+    }
+
+    static List<Set<String>> connect(Dataset dataset) {
+        Map<String, Set<String>> adjacency = AdjacencyBuilder.build(dataset.geometries(), dataset.tolerance(), Set.of());
+        return Arrays.stream(dataset.unitNames()).map(adjacency::get).toList();
+    }
+
+    static GraphManager graph(Dataset dataset) {
+        return new GraphManager(dataset.name(), dataset.unitNames(), connect(dataset));
+    }
+
+    // Games in progress between units at least two steps apart. Players mostly guess units around the optimal route, so the
+    // guesses are drawn from the units that lie on a path at most two units longer than the optimal one.
+    static Position[] positions(GraphManager graph, int count, int guesses, long seed) {
+        Random random = new Random(seed);
+        Position[] positions = new Position[count];
+        for (int p = 0; p < count; p++) {
+            int[] puzzle = graph.puzzles.random(2, Integer.MAX_VALUE);
+            if (puzzle == null) {
+                throw new IllegalStateException("No puzzles in this dataset");
+            }
+            int start = puzzle[0];
+            int end = puzzle[1];
+            int optimal = graph.distances.distance(start, end);
+            List<Integer> nearRoute = new ArrayList<>();
+            for (int unit = 0; unit < graph.size(); unit++) {
+                int viaStart = graph.distances.distance(start, unit);
+                int viaEnd = graph.distances.distance(unit, end);
+                if (unit != start && unit != end && viaStart != -1 && viaEnd != -1 && viaStart + viaEnd <= optimal + 2) {
+                    nearRoute.add(unit);
+                }
+            }
+            BitSet unitsGuessed = new BitSet(graph.size());
+            for (int g = 0; g < guesses && !nearRoute.isEmpty(); g++) {
+                unitsGuessed.set(nearRoute.remove(random.nextInt(nearRoute.size())));
+            }
+            positions[p] = new Position(start, end, unitsGuessed);
+        }
+        return positions;
+    }
+
+    // What players type: beginnings of names, lowercased, some of them with a letter left out
+    static String[] searches(String[] unitNames, int count, long seed) {
+        Random random = new Random(seed);
+        String[] searches = new String[count];
+        for (int i = 0; i < count; i++) {
+            String name = unitNames[random.nextInt(unitNames.length)].toLowerCase();
+            String search = name.substring(0, Math.min(name.length(), 1 + random.nextInt(6)));
+            if (search.length() > 3 && random.nextInt(4) == 0) {
+                int typo = 1 + random.nextInt(search.length() - 1);
+                search = search.substring(0, typo) + search.substring(typo + 1);
+            }
+            searches[i] = search;
+        }
+        return searches;
+    }
+
+    // Square cells with jagged borders of pointsPerEdge points, every border shared exactly by the two cells on its sides
+    private static Map<String, Geometry> grid(int cells, int pointsPerEdge, double cellSize) {
+        Random random = new Random(42);
+        Coordinate[][][] horizontal = new Coordinate[cells + 1][cells][]; // Edge from (x, y) to (x + 1, y)
+        Coordinate[][][] vertical = new Coordinate[cells][cells + 1][]; // Edge from (x, y) to (x, y + 1)
+        for (int y = 0; y <= cells; y++) {
+            for (int x = 0; x < cells; x++) {
+                horizontal[y][x] = edge(x, y, x + 1, y, y > 0 && y < cells, pointsPerEdge, cellSize, random);
+            }
+        }
+        for (int y = 0; y < cells; y++) {
+            for (int x = 0; x <= cells; x++) {
+                vertical[y][x] = edge(x, y, x, y + 1, x > 0 && x < cells, pointsPerEdge, cellSize, random);
+            }
+        }
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Map<String, Geometry> geometries = new LinkedHashMap<>();
+        for (int y = 0; y < cells; y++) {
+            for (int x = 0; x < cells; x++) {
+                List<Coordinate> ring = new ArrayList<>();
+                ring.addAll(Arrays.asList(horizontal[y][x]));
+                ring.addAll(Arrays.asList(vertical[y][x + 1]).subList(1, pointsPerEdge));
+                List<Coordinate> top = Arrays.asList(horizontal[y + 1][x].clone());
+                Collections.reverse(top);
+                ring.addAll(top.subList(1, pointsPerEdge));
+                List<Coordinate> left = Arrays.asList(vertical[y][x].clone());
+                Collections.reverse(left);
+                ring.addAll(left.subList(1, pointsPerEdge));
+                geometries.put("Cell " + x + "," + y, geometryFactory.createPolygon(ring.toArray(new Coordinate[0])));
+            }
+        }
+        return geometries;
+    }
+
+    private static Coordinate[] edge(int x0, int y0, int x1, int y1, boolean jagged, int points, double cellSize, Random random) {
+        Coordinate[] edge = new Coordinate[points];
+        for (int i = 0; i < points; i++) {
+            double t = (double) i / (points - 1);
+            double offset = jagged && i > 0 && i < points - 1 ? (random.nextDouble() - 0.5) * cellSize * 0.2 : 0;
+            edge[i] = new Coordinate((x0 + (x1 - x0) * t) * cellSize + (y0 == y1 ? 0 : offset),
+                    (y0 + (y1 - y0) * t) * cellSize + (x0 == x1 ? 0 : offset));
+        }
+        return edge;
+    }
+}
@@ -0,0 +1,74 @@
+package com.borderhopper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The requests made on every guess. Each call takes the next of a fixed set of games in progress, so the branch predictor
+// and the caches don't see the same start and end every time.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    private static final int POSITIONS = 1024;
+
+    @Param({ BenchmarkData.DATASETS })
+    public String dataset;
+
+    // Units guessed so far, a game that just started, one half way and one of a player who is lost
+    @Param({ "0", "4", "12" })
+    public int guesses;
+
+    private final GeographicalService geographicalService = new GeographicalService();
+    private GraphManager graph;
+    private BenchmarkData.Position[] positions;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        graph = BenchmarkData.graph(BenchmarkData.load(dataset));
+        positions = BenchmarkData.positions(graph, POSITIONS, guesses, 7);
+    }
+
+    private BenchmarkData.Position nextPosition() {
+        return positions[next++ & (POSITIONS - 1)];
+    }
+
+    @Benchmark
+    public Integer distanceRemaining() {
+        BenchmarkData.Position position = nextPosition();
+        return geographicalService.distanceRemaining(graph, position.start(), position.end(), position.unitsGuessed());
+    }
+
+    @Benchmark
+    public int getNextUnit() {
+        BenchmarkData.Position position = nextPosition();
+        return geographicalService.getNextUnit(graph, position.start(), position.end(), position.unitsGuessed());
+    }
+
+    @Benchmark
+    public int[] getConnected() {
+        BenchmarkData.Position position = nextPosition();
+        return geographicalService.getConnected(graph, position.start(), position.end(), position.unitsGuessed());
+    }
+
+    @Benchmark
+    public GameState gameState() {
+        BenchmarkData.Position position = nextPosition();
+        return geographicalService.gameState(graph, position.start(), position.end(), position.unitsGuessed());
+    }
+}
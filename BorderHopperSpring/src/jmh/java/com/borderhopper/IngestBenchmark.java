@@ -0,0 +1,66 @@
+package com.borderhopper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// The steps DbInitializer and LayerIngestService run once per type: finding the neighbours, simplifying the geometries
+// into what is stored and served, and building the graph with its distances and puzzles from the neighbours.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+
+    @Param({ BenchmarkData.DATASETS })
+    public String dataset;
+
+    private BenchmarkData.Dataset data;
+    private String[] unitNames;
+    private List<Set<String>> connectedUnitNames;
+
+    @Setup
+    public void setup() throws Exception {
+        data = BenchmarkData.load(dataset);
+        unitNames = data.unitNames();
+        connectedUnitNames = BenchmarkData.connect(data);
+    }
+
+    @Benchmark
+    public Map<String, Set<String>> adjacency() {
+        return AdjacencyBuilder.build(data.geometries(), data.tolerance(), Set.of());
+    }
+
+    @Benchmark
+    public void simplification(Blackhole blackhole) {
+        GeoJsonWriter writer = new GeoJsonWriter();
+        for (Geometry geometry : data.geometries().values()) {
+            Geometry simplifiedGeometry = data.simplifier().apply(geometry);
+            blackhole.consume(writer.write(simplifiedGeometry));
+            blackhole.consume(TwkbWriter.write(simplifiedGeometry, 5));
+        }
+    }
+
+    @Benchmark
+    public GraphManager graph() {
+        return new GraphManager(dataset, unitNames, connectedUnitNames);
+    }
+}
@@ -0,0 +1,59 @@
+package com.borderhopper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The suggestions shown while a guess is typed. With a few distinct searches they all come from the prefix cache of the
+// index, with more than the cache holds most of them are scored again from their longest cached prefix.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestionBenchmark {
+
+    private static final int TOP_N = 5;
+
+    @Param({ BenchmarkData.DATASETS })
+    public String dataset;
+
+    @Param({ "64", "16384" })
+    public int distinctSearches;
+
+    private String[] unitNames;
+    private String[] searches;
+    private SuggestionIndex suggestionIndex;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        unitNames = BenchmarkData.load(dataset).unitNames();
+        searches = BenchmarkData.searches(unitNames, distinctSearches, 11);
+        suggestionIndex = new SuggestionIndex(dataset, unitNames);
+    }
+
+    @Benchmark
+    public List<String> similarNames() {
+        return suggestionIndex.similarNames(searches[next++ % distinctSearches], TOP_N);
+    }
+
+    // The score of one search against one name, what similarNames does for every unit the index can't rule out
+    @Benchmark
+    public int score() {
+        int i = next++;
+        return FuzzyScorer.score(searches[i % distinctSearches], unitNames[i % unitNames.length]);
+    }
+}
@@ -0,0 +1,41 @@
+package com.borderhopper;
+
+import java.util.Arrays;
+
+// Latencies of one endpoint in microseconds. Every sample is kept, percentiles are exact and computed once at the end.
+public class LatencyRecorder {
+
+    public record Summary(int count, int errors, double p50, double p95, double p99, double max) {
+    }
+
+    private long[] samples = new long[1024];
+    private int count;
+    private int errors;
+
+    public synchronized void record(long micros) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = micros;
+    }
+
+    public synchronized void error() {
+        errors++;
+    }
+
+    // Percentiles in milliseconds
+    public synchronized Summary summary() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(count, errors, percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                count == 0 ? 0 : sorted[count - 1] / 1000.0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1000.0;
+    }
+}
@@ -0,0 +1,122 @@
+package com.borderhopper;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Plays full games against a running server with a number of simulated players and reports the throughput and the
+// latency percentiles of every endpoint. Players start evenly over the ramp up, nothing is recorded until the warmup is
+// over, and the run stops after the duration. Run it with ./mvnw -P loadtest test-compile exec:exec -Dloadtest.args="..."
+public class LoadTest {
+
+    public record Options(String url, String type, int players, Duration rampUp, Duration warmup, Duration duration,
+            long guessThinkMillis, long keystrokeThinkMillis, double mistakeRate, int maxGuesses, Duration requestTimeout) {
+
+        private static final List<String> NAMES = List.of("url", "type", "players", "ramp-up", "warmup", "duration",
+                "guess-think", "keystroke-think", "mistake-rate", "max-guesses", "timeout");
+
+        // Durations are in seconds, think times in milliseconds
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < args.length; i++) {
+                if (!args[i].startsWith("--") || i + 1 == args.length) {
+                    throw new IllegalArgumentException("Expected --option value but found " + args[i]);
+                }
+                if (!NAMES.contains(args[i].substring(2))) {
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+                values.put(args[i].substring(2), args[++i]);
+            }
+            Options options = new Options(values.getOrDefault("url", "http://localhost:8081"),
+                    values.getOrDefault("type", "Country"),
+                    Integer.parseInt(values.getOrDefault("players", "100")),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("ramp-up", "10"))),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "20"))),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                    Long.parseLong(values.getOrDefault("guess-think", "3000")),
+                    Long.parseLong(values.getOrDefault("keystroke-think", "150")),
+                    Double.parseDouble(values.getOrDefault("mistake-rate", "0.3")),
+                    Integer.parseInt(values.getOrDefault("max-guesses", "30")),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("timeout", "10"))));
+            if (options.players() < 1) {
+                throw new IllegalArgumentException("At least one player is needed");
+            }
+            return options;
+        }
+    }
+
+    // What the players share: the latencies per endpoint and whether the warmup is over
+    public static class Stats {
+
+        private final Map<String, LatencyRecorder> endpoints = new ConcurrentHashMap<>();
+        private final AtomicInteger gamesWon = new AtomicInteger();
+        private volatile boolean recording;
+
+        public LatencyRecorder endpoint(String endpoint) {
+            return endpoints.computeIfAbsent(endpoint, e -> new LatencyRecorder());
+        }
+
+        public boolean isRecording() {
+            return recording;
+        }
+
+        public void gameWon() {
+            if (recording) {
+                gamesWon.incrementAndGet();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Options options = Options.parse(args);
+        Stats stats = new Stats();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(options.requestTimeout()).build();
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + options.rampUp().plus(options.warmup()).plus(options.duration()).toNanos();
+        System.out.printf("%d players of %s against %s, %ds ramp up, %ds warmup, %ds measured%n", options.players(), options.type(),
+                options.url(), options.rampUp().toSeconds(), options.warmup().toSeconds(), options.duration().toSeconds());
+
+        List<Thread> players = new ArrayList<>(options.players());
+        for (int i = 0; i < options.players(); i++) {
+            Thread player = new Thread(new LoadTestPlayer(client, objectMapper, options, stats, () -> System.nanoTime() < endNanos, i),
+                    "player-" + i);
+            player.setDaemon(true);
+            player.start();
+            players.add(player);
+            Thread.sleep(options.rampUp().toMillis() / options.players());
+        }
+        Thread.sleep(Math.max(0, startNanos + options.rampUp().plus(options.warmup()).toNanos() - System.nanoTime()) / 1_000_000);
+        stats.recording = true;
+        long recordingNanos = System.nanoTime();
+        Thread.sleep(options.duration().toMillis());
+        stats.recording = false;
+        double seconds = (System.nanoTime() - recordingNanos) / 1e9;
+        for (Thread player : players) {
+            player.interrupt();
+        }
+
+        report(stats, seconds);
+    }
+
+    private static void report(Stats stats, double seconds) {
+        System.out.printf("%n%-32s %9s %7s %9s %9s %9s %9s %9s%n", "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p95 ms", "p99 ms", "Max ms");
+        int total = 0;
+        for (String endpoint : stats.endpoints.keySet().stream().sorted().toList()) {
+            LatencyRecorder.Summary summary = stats.endpoints.get(endpoint).summary();
+            total += summary.count();
+            System.out.printf("%-32s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", endpoint, summary.count(), summary.errors(),
+                    summary.count() / seconds, summary.p50(), summary.p95(), summary.p99(), summary.max());
+        }
+        System.out.printf("%-32s %9d %7s %9.1f%n", "Total", total, "", total / seconds);
+        System.out.printf("%nGames won: %d (%.1f/s) in %.0fs%n", stats.gamesWon.get(), stats.gamesWon.get() / seconds, seconds);
+    }
+}
@@ -0,0 +1,185 @@
+package com.borderhopper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// One simulated player, playing games one after another with the requests MapComponent.vue and AutocompleteComponent.vue
+// make: a new game with the geometries of its start and end, then for every guess a suggestion request per keystroke,
+// the guess itself and the geometry of the guessed unit. A player who knows the way asks for the hint and its outline
+// first, the others pick one of the suggestions for a random letter.
+public class LoadTestPlayer implements Runnable {
+
+    private static final int TOP_N = 300; // What the autocomplete asks for
+    private static final int SUGGESTIONS_SHOWN = 5; // A player stops typing once the unit is this high in the list
+    private static final String TWKB = "application/x-twkb";
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final LoadTest.Options options;
+    private final LoadTest.Stats stats;
+    private final BooleanSupplier running;
+    private final Random random;
+
+    public LoadTestPlayer(HttpClient client, ObjectMapper objectMapper, LoadTest.Options options, LoadTest.Stats stats,
+            BooleanSupplier running, long seed) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.options = options;
+        this.stats = stats;
+        this.running = running;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void run() {
+        while (running.getAsBoolean()) {
+            try {
+                play();
+            } catch (IOException e) {
+                // Already counted as an error of its endpoint, start a new game after a pause
+                sleep(options.guessThinkMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void play() throws IOException, InterruptedException {
+        JsonNode game = json(send("POST /api/games", HttpRequest.newBuilder(uri("/api/games?type=" + encode(options.type())))
+                .POST(HttpRequest.BodyPublishers.noBody())));
+        String gameId = game.get("id").asText();
+        geometry(game.get("start").asText());
+        geometry(game.get("end").asText());
+
+        Set<String> guessed = new HashSet<>();
+        for (int guess = 0; guess < options.maxGuesses() && running.getAsBoolean(); guess++) {
+            think(options.guessThinkMillis());
+            String unit;
+            if (random.nextDouble() >= options.mistakeRate()) {
+                unit = send("GET /api/games/{id}/nextUnit", HttpRequest.newBuilder(uri("/api/games/" + gameId + "/nextUnit")).GET());
+                if (unit.isEmpty()) {
+                    return;
+                }
+                geometry(unit);
+                type(unit);
+            } else {
+                List<String> suggestions = suggest(String.valueOf((char) ('a' + random.nextInt(26))));
+                if (suggestions.isEmpty()) {
+                    continue;
+                }
+                unit = suggestions.get(random.nextInt(Math.min(suggestions.size(), SUGGESTIONS_SHOWN)));
+            }
+            if (!guessed.add(unit)) {
+                continue; // The client answers repeated guesses itself
+            }
+            JsonNode turn = json(send("POST /api/games/{id}/guesses", HttpRequest.newBuilder(uri("/api/games/" + gameId + "/guesses?unit=" + encode(unit)))
+                    .POST(HttpRequest.BodyPublishers.noBody())));
+            String result = turn.get("result").asText();
+            if (!result.equals("Guessed")) {
+                geometry(unit);
+            }
+            if (result.equals("Won")) {
+                stats.gameWon();
+                return;
+            }
+        }
+    }
+
+    // Types the name a letter at a time until it is among the first suggestions
+    private void type(String unit) throws IOException, InterruptedException {
+        String name = unit.toLowerCase(Locale.ROOT);
+        for (int length = 1; length <= name.length(); length++) {
+            if (length > 1) {
+                think(options.keystrokeThinkMillis());
+            }
+            List<String> suggestions = suggest(name.substring(0, length));
+            int position = suggestions.indexOf(unit);
+            if (position != -1 && position < SUGGESTIONS_SHOWN) {
+                return;
+            }
+        }
+    }
+
+    private List<String> suggest(String searchString) throws IOException, InterruptedException {
+        String body = send("GET /api/suggestUnits", HttpRequest.newBuilder(uri("/api/suggestUnits?type=" + encode(options.type())
+                + "&searchString=" + encode(searchString) + "&topN=" + TOP_N)).GET());
+        return objectMapper.readerForListOf(String.class).readValue(body);
+    }
+
+    private void geometry(String unit) throws IOException, InterruptedException {
+        send("GET /api/geometry/{unit}", HttpRequest.newBuilder(uri("/api/geometry/" + encodePath(unit) + "?type=" + encode(options.type())))
+                .header("Accept", TWKB).GET());
+    }
+
+    // Sends the request and records its latency under the endpoint, non 2xx answers and failures count as errors. Nothing
+    // is recorded during the warmup.
+    private String send(String endpoint, HttpRequest.Builder request) throws IOException, InterruptedException {
+        LatencyRecorder recorder = stats.endpoint(endpoint);
+        long startNanos = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.timeout(options.requestTimeout()).build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            if (stats.isRecording()) {
+                recorder.error();
+            }
+            throw e;
+        }
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        if (response.statusCode() / 100 != 2) {
+            if (stats.isRecording()) {
+                recorder.error();
+            }
+            throw new IOException(endpoint + " answered " + response.statusCode());
+        }
+        if (stats.isRecording()) {
+            recorder.record(micros);
+        }
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+
+    private JsonNode json(String body) throws IOException {
+        return objectMapper.readTree(body);
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create(options.url() + pathAndQuery);
+    }
+
+    // Think times vary between half and one and a half times the configured one
+    private void think(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis / 2 + (long) (random.nextDouble() * millis));
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String encodePath(String value) {
+        return encode(value).replace("+", "%20");
+    }
+}
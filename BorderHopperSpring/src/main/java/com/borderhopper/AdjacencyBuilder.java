@@ -0,0 +1,79 @@
+package com.borderhopper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
+
+// Finds the units that border each other. Two units are neighbours when their geometries come within twice the tolerance
+// of each other, which is what intersecting both geometries buffered by the tolerance checks, without building the buffers.
+public final class AdjacencyBuilder {
+
+    private AdjacencyBuilder() {
+    }
+
+    // forbiddenPairs holds "A-B" names of units that must not be connected even though they touch
+    public static Map<String, Set<String>> build(Map<String, Geometry> geometries, double tolerance, Set<String> forbiddenPairs) {
+        String[] names = geometries.keySet().toArray(new String[0]);
+        Geometry[] shapes = new Geometry[names.length];
+        Envelope[] envelopes = new Envelope[names.length];
+        STRtree tree = new STRtree();
+        for (int i = 0; i < names.length; i++) {
+            shapes[i] = geometries.get(names[i]);
+            envelopes[i] = new Envelope(shapes[i].getEnvelopeInternal());
+            envelopes[i].expandBy(tolerance);
+            if (!shapes[i].isEmpty()) {
+                tree.insert(envelopes[i], i);
+            }
+        }
+        tree.build();
+
+        // Every pair is checked once, by the unit that comes first, and units are independent so they run in parallel
+        double distance = 2 * tolerance;
+        int[][] laterNeighbours = new int[names.length][];
+        IntStream.range(0, names.length).parallel().forEach(i -> {
+            List<Integer> found = new ArrayList<>();
+            PreparedGeometry prepared = null;
+            IndexedFacetDistance facets = null;
+            if (!shapes[i].isEmpty()) {
+                for (Object candidate : tree.query(envelopes[i])) {
+                    int j = (Integer) candidate;
+                    if (j <= i || forbiddenPairs.contains(names[i] + "-" + names[j]) || forbiddenPairs.contains(names[j] + "-" + names[i])) {
+                        continue;
+                    }
+                    if (prepared == null) {
+                        prepared = PreparedGeometryFactory.prepare(shapes[i]);
+                        facets = new IndexedFacetDistance(shapes[i]);
+                    }
+                    // Shared borders and overlaps are caught by the prepared test, only gaps need the distance
+                    if (prepared.intersects(shapes[j]) || facets.isWithinDistance(shapes[j], distance)) {
+                        found.add(j);
+                    }
+                }
+            }
+            laterNeighbours[i] = found.stream().mapToInt(Integer::intValue).toArray();
+        });
+
+        Map<String, Set<String>> adjacency = new HashMap<>();
+        for (String name : names) {
+            adjacency.put(name, new HashSet<>());
+        }
+        for (int i = 0; i < names.length; i++) {
+            for (int j : laterNeighbours[i]) {
+                adjacency.get(names[i]).add(names[j]);
+                adjacency.get(names[j]).add(names[i]);
+            }
+        }
+        return adjacency;
+    }
+}
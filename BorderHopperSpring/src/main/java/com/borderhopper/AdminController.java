@@ -0,0 +1,79 @@
+package com.borderhopper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+// Operations on the running node, only available when borderhopper.admin.token is set and only to requests that send it
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private FlightRecordingService flightRecordingService;
+    @Autowired
+    private AdminToken adminToken;
+
+    // Starts recording the node for the given number of seconds. The .jfr file is at the returned location once it is done.
+    @PostMapping("/recordings")
+    public ResponseEntity<FlightRecordingService.Status> record(@RequestHeader(value = AdminToken.HEADER, required = false) String token,
+            @RequestParam(defaultValue = "30") int seconds, @RequestParam(defaultValue = "profile") String settings)
+            throws IOException, ParseException {
+        ResponseEntity<FlightRecordingService.Status> rejected = adminToken.reject(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        if (seconds < 1 || seconds > FlightRecordingService.MAX_DURATION.toSeconds() || !FlightRecordingService.isValidSettings(settings)) {
+            return ResponseEntity.badRequest().build();
+        }
+        FlightRecordingService.Status status;
+        try {
+            status = flightRecordingService.start(Duration.ofSeconds(seconds), settings);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/api/admin/recordings/" + status.id())).body(status);
+    }
+
+    // The .jfr file of a finished recording, and 202 with the status while it is still recording
+    @GetMapping("/recordings/{id}")
+    public ResponseEntity<?> getRecording(@RequestHeader(value = AdminToken.HEADER, required = false) String token, @PathVariable String id)
+            throws IOException {
+        ResponseEntity<?> rejected = adminToken.reject(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        FlightRecordingService.FlightRecording recording = flightRecordingService.get(id);
+        if (recording == null) {
+            return ResponseEntity.notFound().build();
+        }
+        FlightRecordingService.Status status = recording.status();
+        switch (status.state()) {
+            case Recording:
+                long seconds = Math.max(1, (status.stopsAt() - System.currentTimeMillis() + 999) / 1000);
+                return ResponseEntity.accepted().header(HttpHeaders.RETRY_AFTER, Long.toString(seconds)).body(status);
+            case Failed:
+                return ResponseEntity.internalServerError().body(status);
+            default:
+                Path file = recording.file();
+                StreamingResponseBody body = outputStream -> Files.copy(file, outputStream);
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .contentLength(Files.size(file))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("borderhopper-" + id + ".jfr").build().toString())
+                        .body(body);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.borderhopper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+// The token of borderhopper.admin.token, which the admin endpoints and layer uploads expect in the X-Admin-Token header.
+// While it is empty those endpoints answer 404, as if they didn't exist.
+@Component
+public class AdminToken {
+
+    public static final String HEADER = "X-Admin-Token";
+
+    @Value("${borderhopper.admin.token:}")
+    private String adminToken;
+
+    // The response a request with this token gets instead of being served, null when it may go on
+    public <T> ResponseEntity<T> reject(String token) {
+        if (adminToken.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (token == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), adminToken.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.borderhopper;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(UnitNotFoundException.class)
+    public ResponseEntity<String> unitNotFound(UnitNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    @ExceptionHandler(InvalidUnitSetException.class)
+    public ResponseEntity<String> invalidUnitSet(InvalidUnitSetException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    // The client has to fetch the unit ids of the type again
+    @ExceptionHandler(UnitIdsChangedException.class)
+    public ResponseEntity<String> unitIdsChanged(UnitIdsChangedException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(TypeNotFoundException.class)
+    public ResponseEntity<String> typeNotFound(TypeNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+}
@@ -0,0 +1,19 @@
+package com.borderhopper;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CustomLayerRepository extends JpaRepository<CustomLayerUnit, CustomLayerUnitId> {
+    List<CustomLayerUnit> findByLayerName(String layerName);
+
+    boolean existsByLayerName(String layerName);
+
+    @Query("select distinct u.layerName from CustomLayerUnit u")
+    List<String> findLayerNames();
+
+    void deleteByLayerName(String layerName);
+}
@@ -0,0 +1,71 @@
+package com.borderhopper;
+
+import jakarta.persistence.*;
+import java.util.Set;
+
+// A unit of a layer uploaded at runtime, stored apart from the GeographicalType units since its layer is only known by name
+@Entity
+@Table(name = "custom_layer_unit")
+@IdClass(CustomLayerUnitId.class)
+public class CustomLayerUnit implements GeographicalRepository.UnitGeometry {
+
+    @Id
+    @Column(name = "layer_name")
+    private String layerName;
+
+    @Id
+    @Column(name = "unit_name")
+    private String unitName;
+
+    @Column(name = "geojson", columnDefinition = "TEXT")
+    private String geojson;
+
+    @Column(name = "twkb")
+    private byte[] twkb;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    private Set<String> connectedUnitNames;
+
+    public String getLayerName() {
+        return layerName;
+    }
+
+    public void setLayerName(String layerName) {
+        this.layerName = layerName;
+    }
+
+    @Override
+    public String getUnitName() {
+        return unitName;
+    }
+
+    public void setUnitName(String unitName) {
+        this.unitName = unitName;
+    }
+
+    @Override
+    public String getGeojson() {
+        return geojson;
+    }
+
+    public void setGeojson(String geojson) {
+        this.geojson = geojson;
+    }
+
+    @Override
+    public byte[] getTwkb() {
+        return twkb;
+    }
+
+    public void setTwkb(byte[] twkb) {
+        this.twkb = twkb;
+    }
+
+    public Set<String> getConnectedUnitNames() {
+        return connectedUnitNames;
+    }
+
+    public void setConnectedUnitNames(Set<String> connectedUnitNames) {
+        this.connectedUnitNames = connectedUnitNames;
+    }
+}
@@ -0,0 +1,48 @@
+package com.borderhopper;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class CustomLayerUnitId implements Serializable {
+    private String layerName;
+    private String unitName;
+
+    public CustomLayerUnitId() {
+        super();
+    }
+
+    public CustomLayerUnitId(String layerName, String unitName) {
+        super();
+        this.layerName = layerName;
+        this.unitName = unitName;
+    }
+
+    public String getLayerName() {
+        return layerName;
+    }
+
+    public void setLayerName(String layerName) {
+        this.layerName = layerName;
+    }
+
+    public String getUnitName() {
+        return unitName;
+    }
+
+    public void setUnitName(String unitName) {
+        this.unitName = unitName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomLayerUnitId that = (CustomLayerUnitId) o;
+        return Objects.equals(layerName, that.layerName) && Objects.equals(unitName, that.unitName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(layerName, unitName);
+    }
+}
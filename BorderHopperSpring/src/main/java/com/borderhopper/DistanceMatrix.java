@@ -0,0 +1,82 @@
+package com.borderhopper;
+
+import java.util.stream.IntStream;
+
+// Hop distances between every pair of units of one graph, -1 when the units are not connected
+public class DistanceMatrix {
+
+    // Memory and build time grow with the square of the units, larger graphs search instead. All our types are far below.
+    public static final int MAX_UNITS = 4096;
+
+    private final GraphManager graph;
+    private final int size;
+    private final byte[] byteDistances; // Used when every distance fits into a byte, which is the case for all our types
+    private final short[] shortDistances;
+
+    public DistanceMatrix(GraphManager graph) {
+        this.graph = graph;
+        this.size = graph.size();
+        if (size > MAX_UNITS) {
+            throw new IllegalArgumentException(graph.type + " has " + size + " units, a distance matrix takes at most " + MAX_UNITS);
+        }
+        short[] distances = new short[size * size];
+
+        // One plain BFS per source, sources are independent so they run in parallel
+        IntStream.range(0, size).parallel().forEach(source -> {
+            int row = source * size;
+            for (int i = 0; i < size; i++) {
+                distances[row + i] = -1;
+            }
+            int[] queue = new int[size];
+            int head = 0, tail = 0;
+            queue[tail++] = source;
+            distances[row + source] = 0;
+            while (head < tail) {
+                int front = queue[head++];
+                short next = (short) (distances[row + front] + 1);
+                for (int e = graph.offsets[front]; e < graph.offsets[front + 1]; e++) {
+                    int neighbour = graph.targets[e];
+                    if (distances[row + neighbour] == -1) {
+                        distances[row + neighbour] = next;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+        });
+
+        int max = 0;
+        for (short distance : distances) {
+            max = Math.max(max, distance);
+        }
+        if (max <= Byte.MAX_VALUE) {
+            byteDistances = new byte[distances.length];
+            for (int i = 0; i < distances.length; i++) {
+                byteDistances[i] = (byte) distances[i];
+            }
+            shortDistances = null;
+        }
+        else {
+            byteDistances = null;
+            shortDistances = distances;
+        }
+    }
+
+    public int distance(int from, int to) {
+        int index = from * size + to;
+        return byteDistances != null ? byteDistances[index] : shortDistances[index];
+    }
+
+    // Neighbour of from that is one hop closer to to, -1 if there is none
+    public int nextHop(int from, int to) {
+        int distance = distance(from, to);
+        if (distance <= 0) {
+            return -1;
+        }
+        for (int e = graph.offsets[from]; e < graph.offsets[from + 1]; e++) {
+            if (distance(graph.targets[e], to) == distance - 1) {
+                return graph.targets[e];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,123 @@
+package com.borderhopper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+// Time-boxed JDK Flight Recorder recordings of the running node, with the JDK's default or profile settings and the
+// BorderHopper events. One recording at a time, since a second one would only repeat the first. A recording is started
+// right away and stopped by a scheduled task, so no request waits for it; the file is kept an hour for download.
+@Service
+public class FlightRecordingService {
+
+    public static final Duration MAX_DURATION = Duration.ofMinutes(5);
+    private static final Duration KEEP_FILE = Duration.ofHours(1);
+
+    public enum State {
+        Recording,
+        Done,
+        Failed
+    }
+
+    // stopsAt is in epoch milliseconds
+    public record Status(String id, String settings, State state, long stopsAt, String error) {
+    }
+
+    // The file only exists once the recording is done
+    public record FlightRecording(Status status, Path file) {
+    }
+
+    private final AtomicBoolean recording = new AtomicBoolean();
+    private final Map<String, FlightRecording> recordings = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "flight-recording");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static boolean isValidSettings(String settings) {
+        return settings.equals("default") || settings.equals("profile");
+    }
+
+    // Starts recording for the duration. Throws IllegalStateException when another recording is running.
+    public Status start(Duration duration, String settings) throws IOException, ParseException {
+        if (!recording.compareAndSet(false, true)) {
+            throw new IllegalStateException("A recording is already running");
+        }
+        try {
+            String id = UUID.randomUUID().toString();
+            Recording jfr = new Recording(Configuration.getConfiguration(settings));
+            jfr.setName("borderhopper-" + settings);
+            jfr.setToDisk(true);
+            jfr.start();
+            Status status = new Status(id, settings, State.Recording, System.currentTimeMillis() + duration.toMillis(), null);
+            recordings.put(id, new FlightRecording(status, null));
+            scheduler.schedule(() -> stop(status, jfr), duration.toMillis(), TimeUnit.MILLISECONDS);
+            return status;
+        } catch (IOException | ParseException | RuntimeException e) {
+            recording.set(false);
+            throw e;
+        }
+    }
+
+    // Null for recordings that are unknown or whose file was deleted already
+    public FlightRecording get(String id) {
+        return recordings.get(id);
+    }
+
+    private void stop(Status status, Recording jfr) {
+        Path file = null;
+        try (jfr) {
+            jfr.stop();
+            file = Files.createTempFile("borderhopper-", ".jfr");
+            jfr.dump(file);
+            recordings.put(status.id(), new FlightRecording(new Status(status.id(), status.settings(), State.Done, status.stopsAt(), null), file));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            deleteQuietly(file);
+            file = null;
+            recordings.put(status.id(), new FlightRecording(new Status(status.id(), status.settings(), State.Failed, status.stopsAt(), e.toString()), null));
+        } finally {
+            recording.set(false);
+        }
+        Path dumped = file;
+        scheduler.schedule(() -> {
+            recordings.remove(status.id());
+            deleteQuietly(dumped);
+        }, KEEP_FILE.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        scheduler.shutdownNow();
+        for (FlightRecording flightRecording : recordings.values()) {
+            deleteQuietly(flightRecording.file());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.borderhopper;
+
+// How far a search string is from a name: 100 for every name letter skipped before the first match, 1000 for every
+// name letter skipped between matches, 10000 for every search letter that is not matched at all and 1 for every name
+// letter after the last match. Scores of 20100 and above are not considered a match and are reported as -1.
+public final class FuzzyScorer {
+
+    public static final int PENALTY_FRONT = 100;
+    public static final int PENALTY_GAP = 1000;
+    public static final int PENALTY_SKIP_LETTER = 10000;
+    public static final int DISTANCE_CUTOFF = 20100;
+
+    private static final ThreadLocal<int[][]> rows = ThreadLocal.withInitial(() -> new int[2][32]);
+
+    private FuzzyScorer() {
+    }
+
+    public static int score(String search, String name) {
+        return score(search.toCharArray(), name.toCharArray());
+    }
+
+    public static int score(char[] search, char[] name) {
+        return score(search, name, DISTANCE_CUTOFF);
+    }
+
+    // The same with another cutoff, scores of cutoff and above are reported as -1
+    public static int score(char[] search, char[] name, int cutoff) {
+        int n = name.length;
+        int[][] scratch = rows.get();
+        if (scratch[0].length < n + 1) {
+            scratch[0] = new int[n + 1];
+            scratch[1] = new int[n + 1];
+        }
+        // next holds the scores for search letters i + 1.., current the ones for i..
+        int[] next = scratch[0];
+        int[] current = scratch[1];
+
+        for (int j = 0; j <= n; j++) {
+            next[j] = n - j; // Passed all search letters
+        }
+        for (int i = search.length - 1; i >= 0; i--) {
+            char letter = search[i];
+            int penaltyMove = i == 0 ? PENALTY_FRONT : PENALTY_GAP;
+
+            // Matching or skipping the letter only looks at the previous row, so this pass has no loop carried dependency
+            for (int j = 0; j < n; j++) {
+                int skip = Math.min(cutoff, next[j] + PENALTY_SKIP_LETTER);
+                current[j] = letter == name[j] ? Math.min(skip, next[j + 1]) : skip;
+            }
+            current[n] = (search.length - i) * PENALTY_SKIP_LETTER;
+
+            // Moving along the name is a running minimum from the back
+            int rowMin = current[n];
+            for (int j = n - 1; j >= 0; j--) {
+                current[j] = Math.min(current[j], current[j + 1] + penaltyMove);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+
+            // Rows for earlier search letters never score below the best one of this row, so the cutoff can't be beaten anymore
+            if (rowMin >= cutoff) {
+                return -1;
+            }
+            int[] swap = next;
+            next = current;
+            current = swap;
+        }
+        return next[0] >= cutoff ? -1 : next[0];
+    }
+}
@@ -0,0 +1,128 @@
+package com.borderhopper;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+// Meters of the game and ingest hot paths, exported by Actuator at /actuator/prometheus next to the request timers.
+// They are registered in the global registry that Spring Boot binds its registries to, so plain classes like ZeroOneBfs
+// and SuggestionIndex can record without being beans. Outside Spring, in tests and benchmarks, recording does nothing.
+// The same places commit JFR events with the details of every single call, which only cost anything during a recording.
+public final class GameMetrics {
+
+    // The graph searches behind the game requests
+    public enum Query {
+        DistanceRemaining,
+        NextUnit,
+        Connected,
+        GameState,
+        Guess;
+
+        private final DistributionSummary visited = summary("borderhopper.bfs.visited", "Units visited by one graph search", "units")
+                .tag("query", name()).register(registry());
+        private final DistributionSummary guessed = summary("borderhopper.bfs.guessed", "Units guessed in the game a graph search was made for", "units")
+                .tag("query", name()).register(registry());
+    }
+
+    // How much of one type's units a similarNames call had to score and how many it returned
+    public record Suggestions(String type, DistributionSummary scored, DistributionSummary returned) {
+
+        // The event was begun when the search started
+        public void record(SuggestionSearchEvent event, int searchLength, int candidates, int scored, int results) {
+            this.scored.record(scored);
+            this.returned.record(results);
+            if (event.shouldCommit()) {
+                event.type = type;
+                event.searchLength = searchLength;
+                event.candidates = candidates;
+                event.scored = scored;
+                event.results = results;
+                event.commit();
+            }
+        }
+    }
+
+    private static final Map<String, DistributionSummary> geometryBytes = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> ingestPhases = new ConcurrentHashMap<>();
+
+    private GameMetrics() {
+    }
+
+    // The event was begun when the search started
+    public static void bfs(GraphSearchEvent event, Query query, GraphManager graph, int start, int end, BitSet unitsGuessed, int visited) {
+        int guesses = unitsGuessed.cardinality();
+        query.visited.record(visited);
+        query.guessed.record(guesses);
+        if (event.shouldCommit()) {
+            event.query = query.name();
+            event.type = graph.type;
+            event.start = graph.unitNames[start];
+            event.end = graph.unitNames[end];
+            event.guesses = guesses;
+            event.visited = visited;
+            event.commit();
+        }
+    }
+
+    public static Suggestions suggestions(String type) {
+        return new Suggestions(type,
+                summary("borderhopper.suggestions.scored", "Units scored by one suggestion search", "units").tag("type", type).register(registry()),
+                summary("borderhopper.suggestions.returned", "Suggestions returned by one suggestion search", "units").tag("type", type).register(registry()));
+    }
+
+    // Body size of a geometry response as sent, after compression when the client accepts gzip
+    public static void geometryServed(String type, String format, boolean gzip, int bytes) {
+        String encoding = gzip ? "gzip" : "identity";
+        geometryBytes.computeIfAbsent(type + '\0' + format + '\0' + encoding, key -> summary("borderhopper.geometry.bytes", "Bytes of geometry responses", "bytes")
+                .tags("type", type, "format", format, "encoding", encoding).register(registry())).record(bytes);
+    }
+
+    public static void ingestPhase(String layer, IngestJob.Stage phase, long nanos) {
+        ingestPhases.computeIfAbsent(layer + '\0' + phase, key -> Timer.builder("borderhopper.ingest.phase")
+                .description("Time one layer spent in a phase of its ingest")
+                .tags("layer", layer, "phase", phase.name())
+                .register(registry())).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static <T> T ingestPhase(String layer, IngestJob.Stage phase, Supplier<T> step) {
+        IngestPhaseEvent event = new IngestPhaseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            ingestPhase(layer, phase, System.nanoTime() - start);
+            commit(event, layer, phase);
+        }
+    }
+
+    public static void commit(IngestPhaseEvent event, String layer, IngestJob.Stage phase) {
+        if (event.shouldCommit()) {
+            event.layer = layer;
+            event.phase = phase.name();
+            event.commit();
+        }
+    }
+
+    public static void ingestPhase(String layer, IngestJob.Stage phase, Runnable step) {
+        ingestPhase(layer, phase, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    private static DistributionSummary.Builder summary(String name, String description, String baseUnit) {
+        return DistributionSummary.builder(name).description(description).baseUnit(baseUnit).publishPercentileHistogram();
+    }
+
+    private static MeterRegistry registry() {
+        return Metrics.globalRegistry;
+    }
+}
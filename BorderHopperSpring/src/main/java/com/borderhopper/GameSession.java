@@ -0,0 +1,89 @@
+package com.borderhopper;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class GameSession {
+
+    public record Response(String id, String type, long graphVersion, String start, String end, int optimalDistance,
+            int previousDistance, int distanceRemaining, List<String> connected, String result) {
+    }
+
+    private final String id;
+    private final String type;
+    private final long graphVersion;
+    private final GraphManager graph;
+    private final int start;
+    private final int end;
+    private final GameState state;
+    private final int optimalDistance;
+
+    public GameSession(String id, String type, long graphVersion, GraphManager graph, int start, int end) {
+        this.id = id;
+        this.type = type;
+        this.graphVersion = graphVersion;
+        this.graph = graph;
+        this.start = start;
+        this.end = end;
+        this.state = new GameState(graph, start, end, new BitSet(graph.size()));
+        this.optimalDistance = state.distanceRemaining();
+    }
+
+    public synchronized Response current() {
+        int distance = state.distanceRemaining();
+        return response(distance, distance, distance == 0 ? "Won" : "Started");
+    }
+
+    public Response guess(String unitName) {
+        return guess(graph.requireUnitId(unitName));
+    }
+
+    public synchronized Response guess(int unitId) {
+        int unit = graph.requireUnitId(unitId);
+        int previousDistance = state.distanceRemaining();
+        if (!state.guess(unit)) {
+            return response(previousDistance, previousDistance, "Guessed");
+        }
+        int distance = state.distanceRemaining();
+        String result;
+        if (previousDistance != 0 && distance == 0) {
+            result = "Won";
+        }
+        else if (distance == previousDistance) {
+            result = "Bad";
+        }
+        else {
+            result = "Good";
+        }
+        return response(previousDistance, distance, result);
+    }
+
+    public synchronized String nextUnit() {
+        int next = state.nextUnit();
+        return next == -1 ? null : graph.unitNames[next];
+    }
+
+    // Null if start and end are not connected
+    public OptimalRoutes.Names optimalRoutes() {
+        OptimalRoutes routes = OptimalRoutes.of(graph, start, end);
+        return routes == null ? null : routes.names(graph);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getGraphVersion() {
+        return graphVersion;
+    }
+
+    private Response response(int previousDistance, int distance, String result) {
+        List<String> connected = state.connected().stream().map(unit -> graph.unitNames[unit]).toList();
+        return new Response(id, type, graphVersion, graph.unitNames[start], graph.unitNames[end], optimalDistance, previousDistance,
+                distance, connected, result);
+    }
+}
@@ -0,0 +1,53 @@
+package com.borderhopper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/games")
+public class GameSessionController {
+
+    @Autowired
+    private GameSessionService gameSessionService;
+
+    @PostMapping
+    // Without a start and end the puzzle is random, optionally with a range of steps or a difficulty like /api/randomConnected
+    public ResponseEntity<GameSession.Response> createGame(@RequestParam String type, @RequestParam(required = false) String start, @RequestParam(required = false) String end,
+            @RequestParam(required = false) Integer minSteps, @RequestParam(required = false) Integer maxSteps, @RequestParam(required = false) PuzzleIndex.Difficulty difficulty) {
+        GameSession session = gameSessionService.create(type, start, end, minSteps, maxSteps, difficulty);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(session.current());
+    }
+
+    @GetMapping("/{gameId}")
+    public ResponseEntity<GameSession.Response> getGame(@PathVariable String gameId) {
+        return ResponseEntity.of(Optional.ofNullable(gameSessionService.get(gameId)).map(GameSession::current));
+    }
+
+    @PostMapping("/{gameId}/guesses")
+    public ResponseEntity<GameSession.Response> guess(@PathVariable String gameId, @RequestParam String unit) {
+        return ResponseEntity.of(Optional.ofNullable(gameSessionService.get(gameId)).map(session -> session.guess(unit)));
+    }
+
+    // Guesses by an id from /api/units of the type of the game
+    @PostMapping(value = "/{gameId}/guesses", params = "unitId")
+    public ResponseEntity<GameSession.Response> guessById(@PathVariable String gameId, @RequestParam int unitId) {
+        return ResponseEntity.of(Optional.ofNullable(gameSessionService.get(gameId)).map(session -> session.guess(unitId)));
+    }
+
+    // Every optimal route of the game, for showing them once it is over
+    @GetMapping("/{gameId}/optimalRoutes")
+    public ResponseEntity<OptimalRoutes.Names> getOptimalRoutes(@PathVariable String gameId) {
+        return ResponseEntity.of(Optional.ofNullable(gameSessionService.get(gameId)).map(GameSession::optimalRoutes));
+    }
+
+    @GetMapping("/{gameId}/nextUnit")
+    public ResponseEntity<String> getNextUnit(@PathVariable String gameId) {
+        return ResponseEntity.of(Optional.ofNullable(gameSessionService.get(gameId)).map(GameSession::nextUnit));
+    }
+}
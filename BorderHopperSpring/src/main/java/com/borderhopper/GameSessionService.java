@@ -0,0 +1,73 @@
+package com.borderhopper;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import jakarta.annotation.PostConstruct;
+
+// Games in progress, dropped once they were idle for an hour. There are never more than the configured number of them, when
+// more are started the ones least likely to be played again are dropped first.
+@Service
+public class GameSessionService {
+
+    private static final Duration SESSION_TIMEOUT = Duration.ofHours(1);
+
+    @Autowired
+    private GeographicalService geographicalService;
+    @Value("${borderhopper.sessions.max-size:100000}")
+    private long maxSize;
+
+    private Cache<String, GameSession> sessions;
+
+    @PostConstruct
+    private void start() {
+        sessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(SESSION_TIMEOUT)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, sessions, "gameSessions");
+    }
+
+    // Starts a game between the given units, or between a random connected pair when they are null, null if no pair matches
+    public GameSession create(String type, String start, String end, Integer minSteps, Integer maxSteps, PuzzleIndex.Difficulty difficulty) {
+        // A game keeps the graph it started with, even when the graphs are reloaded while it is played
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        int startUnit, endUnit;
+        if (start == null || end == null) {
+            int[] units = geographicalService.getRandomConnectedUnits(graph, minSteps, maxSteps, difficulty);
+            if (units == null) {
+                return null;
+            }
+            startUnit = units[0];
+            endUnit = units[1];
+        }
+        else {
+            startUnit = graph.requireUnitId(start);
+            endUnit = graph.requireUnitId(end);
+        }
+        GameSession session = new GameSession(UUID.randomUUID().toString(), type, graphs.version(), graph, startUnit, endUnit);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    public GameSession get(String id) {
+        return sessions.getIfPresent(id);
+    }
+
+    // The same as get, but not counted as a lookup in the gameSessions metrics
+    public GameSession peek(String id) {
+        return sessions.asMap().get(id);
+    }
+}
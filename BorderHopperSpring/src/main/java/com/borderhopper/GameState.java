@@ -0,0 +1,156 @@
+package com.borderhopper;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Distances towards end and the region connected to start/end for one set of guesses, kept up to date one guess at a time.
+// A guess only turns the cost of entering one unit from 1 to 0, so distances can only drop, and by at most 1.
+public class GameState {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final GraphManager graph;
+    private final int start;
+    private final int end;
+    private final BitSet unitsGuessed;
+    private final BitSet connected;
+    private final int[] distance; // Cost of reaching end from every unit
+    private final int[] queue;
+
+    public GameState(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+        this.graph = graph;
+        this.start = start;
+        this.end = end;
+        this.unitsGuessed = (BitSet) unitsGuessed.clone();
+        this.connected = new BitSet(graph.size());
+        this.distance = new int[graph.size()];
+        this.queue = new int[Math.max(graph.size(), 1)];
+
+        GraphSearchEvent event = new GraphSearchEvent();
+        event.begin();
+        ZeroOneBfs bfs = ZeroOneBfs.acquire();
+        try {
+            bfs.run(graph, -1, end, this.unitsGuessed);
+            for (int i = 0; i < distance.length; i++) {
+                distance[i] = bfs.visited(i) ? bfs.distance(i) : UNREACHABLE;
+            }
+            GameMetrics.bfs(event, GameMetrics.Query.GameState, graph, start, end, this.unitsGuessed, bfs.visitedCount());
+        } finally {
+            bfs.release();
+        }
+        connected.set(start);
+        connected.set(end);
+        floodConnected(start);
+        floodConnected(end);
+    }
+
+    // Returns false if the unit was already part of the game
+    public boolean guess(int unit) {
+        if (unit == start || unit == end || unitsGuessed.get(unit)) {
+            return false;
+        }
+        unitsGuessed.set(unit);
+
+        if (distance[unit] != UNREACHABLE) {
+            GraphSearchEvent event = new GraphSearchEvent();
+            event.begin();
+            distance[unit]--;
+            int head = 0, tail = 0;
+            queue[tail++] = unit;
+            while (head < tail) {
+                int front = queue[head++];
+                for (int e = graph.offsets[front]; e < graph.offsets[front + 1]; e++) {
+                    int neighbour = graph.targets[e];
+                    int candidate = distance[front] + (unitsGuessed.get(neighbour) ? 0 : 1);
+                    if (candidate < distance[neighbour]) {
+                        // Every distance drops at most once, so the queue never outgrows the graph
+                        distance[neighbour] = candidate;
+                        queue[tail++] = neighbour;
+                    }
+                }
+            }
+            GameMetrics.bfs(event, GameMetrics.Query.Guess, graph, start, end, unitsGuessed, tail);
+        }
+
+        for (int e = graph.offsets[unit]; e < graph.offsets[unit + 1]; e++) {
+            if (connected.get(graph.targets[e])) {
+                connected.set(unit);
+                floodConnected(unit);
+                break;
+            }
+        }
+        return true;
+    }
+
+    public boolean isGuessed(int unit) {
+        return unitsGuessed.get(unit);
+    }
+
+    public int distanceRemaining() {
+        if (distance[start] == UNREACHABLE) {
+            return -1;
+        }
+        return distance[start] - 1; // Don't count start into distance
+    }
+
+    // Guessed units that are linked to start or end through other guessed units
+    public List<Integer> connected() {
+        List<Integer> result = new ArrayList<>();
+        for (int unit = connected.nextSetBit(0); unit >= 0; unit = connected.nextSetBit(unit + 1)) {
+            if (unit != start && unit != end) {
+                result.add(unit);
+            }
+        }
+        return result;
+    }
+
+    // First unit that is not guessed yet on an optimal path from start to end, -1 if there is none
+    public int nextUnit() {
+        if (distance[start] == UNREACHABLE) {
+            return -1;
+        }
+        GraphSearchEvent event = new GraphSearchEvent();
+        event.begin();
+        BitSet visited = new BitSet(graph.size());
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        visited.set(start);
+        while (head < tail) {
+            int front = queue[head++];
+            int frontCost = unitsGuessed.get(front) ? 0 : 1;
+            for (int e = graph.offsets[front]; e < graph.offsets[front + 1]; e++) {
+                int neighbour = graph.targets[e];
+                if (visited.get(neighbour) || distance[neighbour] != distance[front] - frontCost) {
+                    continue;
+                }
+                if (neighbour == end) {
+                    continue;
+                }
+                if (!unitsGuessed.get(neighbour)) {
+                    GameMetrics.bfs(event, GameMetrics.Query.NextUnit, graph, start, end, unitsGuessed, tail);
+                    return neighbour;
+                }
+                visited.set(neighbour);
+                queue[tail++] = neighbour;
+            }
+        }
+        GameMetrics.bfs(event, GameMetrics.Query.NextUnit, graph, start, end, unitsGuessed, tail);
+        return -1;
+    }
+
+    private void floodConnected(int from) {
+        int head = 0, tail = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            int front = queue[head++];
+            for (int e = graph.offsets[front]; e < graph.offsets[front + 1]; e++) {
+                int neighbour = graph.targets[e];
+                if (!connected.get(neighbour) && unitsGuessed.get(neighbour)) {
+                    connected.set(neighbour);
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.borderhopper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+// Reads the features of a GeoJSON FeatureCollection one at a time, straight from the tokens into JTS geometries,
+// so only the current feature is ever held in memory. Properties keep their scalar values, nested values are skipped.
+public class GeoJsonFeatureReader implements Closeable {
+
+    public record Feature(Map<String, Object> properties, Geometry geometry) {
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final GeometryFactory geometryFactory;
+    private boolean inFeatures;
+    private boolean finished;
+
+    public GeoJsonFeatureReader(InputStream inputStream) throws IOException {
+        this(inputStream, new GeometryFactory());
+    }
+
+    public GeoJsonFeatureReader(InputStream inputStream, GeometryFactory geometryFactory) throws IOException {
+        this.parser = JSON_FACTORY.createParser(inputStream);
+        this.geometryFactory = geometryFactory;
+    }
+
+    // The next feature, null after the last one
+    public Feature next() throws IOException {
+        if (!inFeatures && !findFeatures()) {
+            return null;
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            inFeatures = false;
+            finished = true;
+            return null;
+        }
+        expect(token, JsonToken.START_OBJECT);
+        return readFeature();
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    // Skips the other members of the collection up to the features array
+    private boolean findFeatures() throws IOException {
+        if (finished) {
+            return false;
+        }
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("features") && value == JsonToken.START_ARRAY) {
+                inFeatures = true;
+                return true;
+            }
+            parser.skipChildren();
+        }
+        finished = true;
+        return false;
+    }
+
+    private Feature readFeature() throws IOException {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        Geometry geometry = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("properties") && value == JsonToken.START_OBJECT) {
+                readProperties(properties);
+            }
+            else if (field.equals("geometry") && value == JsonToken.START_OBJECT) {
+                geometry = readGeometry();
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        return new Feature(properties, geometry);
+    }
+
+    private void readProperties(Map<String, Object> properties) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            switch (parser.nextToken()) {
+                case VALUE_STRING -> properties.put(field, parser.getText());
+                case VALUE_NUMBER_INT -> properties.put(field, parser.getNumberValue());
+                case VALUE_NUMBER_FLOAT -> properties.put(field, parser.getDoubleValue());
+                case VALUE_TRUE -> properties.put(field, true);
+                case VALUE_FALSE -> properties.put(field, false);
+                case VALUE_NULL -> properties.put(field, null);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    // The members of a geometry can come in any order, so the coordinates are only turned into a geometry at the end
+    private Geometry readGeometry() throws IOException {
+        String type = null;
+        Object coordinates = null;
+        List<Geometry> geometries = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("type") && value == JsonToken.VALUE_STRING) {
+                type = parser.getText();
+            }
+            else if (field.equals("coordinates") && value == JsonToken.START_ARRAY) {
+                coordinates = readCoordinates();
+            }
+            else if (field.equals("geometries") && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    geometries.add(readGeometry());
+                }
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        if (type == null) {
+            throw new JsonParseException(parser, "GeoJSON geometry without a type");
+        }
+        return switch (type) {
+            case "Point" -> coordinates instanceof Coordinate coordinate ? geometryFactory.createPoint(coordinate) : geometryFactory.createPoint();
+            case "LineString" -> geometryFactory.createLineString(toCoordinates(coordinates));
+            case "Polygon" -> toPolygon(coordinates);
+            case "MultiPoint" -> geometryFactory.createMultiPoint(toList(coordinates).stream()
+                    .map(point -> geometryFactory.createPoint((Coordinate) point)).toArray(Point[]::new));
+            case "MultiLineString" -> geometryFactory.createMultiLineString(toList(coordinates).stream()
+                    .map(line -> geometryFactory.createLineString(toCoordinates(line))).toArray(LineString[]::new));
+            case "MultiPolygon" -> geometryFactory.createMultiPolygon(toList(coordinates).stream()
+                    .map(this::toPolygon).toArray(Polygon[]::new));
+            case "GeometryCollection" -> geometryFactory.createGeometryCollection(geometries.toArray(new Geometry[0]));
+            default -> throw new JsonParseException(parser, "Unsupported GeoJSON geometry type " + type);
+        };
+    }
+
+    // A position becomes a Coordinate, every other array a List, starting after its opening bracket
+    private Object readCoordinates() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+            double[] ordinates = { Double.NaN, Double.NaN, Double.NaN };
+            int count = 0;
+            while (token != JsonToken.END_ARRAY) {
+                if (count < ordinates.length) {
+                    ordinates[count] = parser.getDoubleValue();
+                }
+                count++;
+                token = parser.nextToken();
+            }
+            if (count < 2) {
+                throw new JsonParseException(parser, "GeoJSON position with less than two ordinates");
+            }
+            return new Coordinate(ordinates[0], ordinates[1], ordinates[2]);
+        }
+        List<Object> list = new ArrayList<>();
+        while (token != JsonToken.END_ARRAY) {
+            expect(token, JsonToken.START_ARRAY);
+            list.add(readCoordinates());
+            token = parser.nextToken();
+        }
+        return list;
+    }
+
+    private Polygon toPolygon(Object coordinates) {
+        List<Object> rings = toList(coordinates);
+        if (rings.isEmpty()) {
+            return geometryFactory.createPolygon();
+        }
+        LinearRing shell = geometryFactory.createLinearRing(toCoordinates(rings.get(0)));
+        LinearRing[] holes = new LinearRing[rings.size() - 1];
+        for (int i = 1; i < rings.size(); i++) {
+            holes[i - 1] = geometryFactory.createLinearRing(toCoordinates(rings.get(i)));
+        }
+        return geometryFactory.createPolygon(shell, holes);
+    }
+
+    private static Coordinate[] toCoordinates(Object coordinates) {
+        return toList(coordinates).toArray(new Coordinate[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> toList(Object coordinates) {
+        return coordinates == null ? List.of() : (List<Object>) coordinates;
+    }
+
+    private void expect(JsonToken token, JsonToken expected) throws IOException {
+        if (token != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but found " + token);
+        }
+    }
+}
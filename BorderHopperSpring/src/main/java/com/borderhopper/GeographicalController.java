@@ -2,7 +2,11 @@ package com.borderhopper;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.util.Pair;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -10,9 +14,16 @@ import com.borderhopper.GeographicalUnit.GeographicalType;
 
 import jakarta.annotation.PostConstruct;
 
+import java.net.URI;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
@@ -22,86 +33,381 @@ public class GeographicalController {
     private GeographicalService geographicalService;
     @Autowired
     private DbInitializer dbInitializer;
+    @Autowired
+    private GeometryCache geometryCache;
+    @Autowired
+    private TilePyramid tilePyramid;
+    @Autowired
+    private Snapshot snapshot;
+    @Autowired
+    private LayerIngestService layerIngestService;
+    @Autowired
+    private QueryCache queryCache;
+
+    private static final MediaType VECTOR_TILE = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+    private static final MediaType TWKB = MediaType.parseMediaType("application/x-twkb");
+    private static final Pattern ENTITY_TAG = Pattern.compile("(?:W/)?(\"[^\"]*\")");
+    // Version of the graphs an answer was computed from, it changes whenever the graphs are reloaded or a layer is added
+    public static final String GRAPH_VERSION = "X-Graph-Version";
+
+    // The units of a type in id order. idsVersion only changes when the units of the type change, unlike the graph version.
+    public record Units(String type, String idsVersion, List<String> units) {
+    }
     
 
     @PostConstruct
     private void init() {
-    	dbInitializer.initDb();
-    	geographicalService.init();
+    	if (!layerIngestService.compute(snapshot::load)) {
+    		loadFromDatabase();
+    	}
+    	layerIngestService.submitBackground("building the tile pyramid", tilePyramid::init);
+    	layerIngestService.loadStoredLayers();
+    }
+
+    // On the compute pool of the ingest, which finding the neighbours and building the graphs use for their parallel parts
+    private void loadFromDatabase() {
+    	layerIngestService.compute(() -> {
+    		dbInitializer.initDb();
+    		geographicalService.init();
+    		geometryCache.init();
+    		snapshot.save();
+    	});
     }
 
+    // Steps count the units between start and end on an optimal path, a difficulty picks them from the thirds of all puzzles
     @GetMapping("/randomConnected")
-    public ResponseEntity<Pair<String, String>> getRandomConnectedUnits(@RequestParam GeographicalType type) {
-        Pair<String, String> units = geographicalService.getRandomConnectedUnits(type);
+    public ResponseEntity<Pair<String, String>> getRandomConnectedUnits(@RequestParam String type, @RequestParam(required = false) Integer minSteps,
+            @RequestParam(required = false) Integer maxSteps, @RequestParam(required = false) PuzzleIndex.Difficulty difficulty) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        int[] units = geographicalService.getRandomConnectedUnits(graph, minSteps, maxSteps, difficulty);
         if (units == null) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            return ResponseEntity.notFound().header(GRAPH_VERSION, Long.toString(graphs.version())).build();
         }
-        return ResponseEntity.ok(units);
+        return ok(graphs).body(Pair.of(graph.unitNames[units[0]], graph.unitNames[units[1]]));
     }
 
     @GetMapping("/nextUnit")
-    public ResponseEntity<String> getNextUnit(@RequestParam GeographicalType type, @RequestParam String start, @RequestParam String end, @RequestParam Set<String> unitsGuessed) {
-        if (!geographicalService.unitExists(type, start)) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + start);
-        }if (!geographicalService.unitExists(type, end)) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + start);
-        }
-        for (String unit : unitsGuessed) {
-        	if (!geographicalService.unitExists(type, unit)) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + unit);
-        	}
+    public ResponseEntity<String> getNextUnit(@RequestParam String type, @RequestParam String start, @RequestParam String end, @RequestParam Set<String> unitsGuessed) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        int next = queryCache.getNextUnit(graph, graph.requireUnitId(start), graph.requireUnitId(end), toUnitIds(graph, unitsGuessed));
+        if (next == -1) {
+            return ResponseEntity.notFound().header(GRAPH_VERSION, Long.toString(graphs.version())).build();
         }
-        return ResponseEntity.of(Optional.ofNullable(geographicalService.getNextUnit(type, start, end, unitsGuessed)));
+        return ok(graphs).body(graph.unitNames[next]);
     }
 
     @GetMapping("/distanceRemaining")
-    public ResponseEntity<?> getDistanceRemaining(@RequestParam GeographicalType type, @RequestParam String start, @RequestParam String end, @RequestParam Set<String> unitsGuessed) {
-    	if (!geographicalService.unitExists(type, start)) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + start);
-        }if (!geographicalService.unitExists(type, end)) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + start);
-        }
-        for (String unit : unitsGuessed) {
-        	if (!geographicalService.unitExists(type, unit)) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + unit);
-        	}
+    public ResponseEntity<?> getDistanceRemaining(@RequestParam String type, @RequestParam String start, @RequestParam String end, @RequestParam Set<String> unitsGuessed) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        return ok(graphs).body(queryCache.distanceRemaining(graph, graph.requireUnitId(start), graph.requireUnitId(end), toUnitIds(graph, unitsGuessed)));
+    }
+
+    @GetMapping("/optimalDistance")
+    public ResponseEntity<Integer> getOptimalDistance(@RequestParam String type, @RequestParam String start, @RequestParam String end) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        return ok(graphs).body(geographicalService.optimalDistance(graph, graph.requireUnitId(start), graph.requireUnitId(end)));
+    }
+
+    // Every optimal route between start and end, for showing them once a game is over
+    @GetMapping("/optimalRoutes")
+    public ResponseEntity<OptimalRoutes.Names> getOptimalRoutes(@RequestParam String type, @RequestParam String start, @RequestParam String end) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        OptimalRoutes routes = geographicalService.optimalRoutes(graph, graph.requireUnitId(start), graph.requireUnitId(end));
+        if (routes == null) {
+            return ResponseEntity.notFound().header(GRAPH_VERSION, Long.toString(graphs.version())).build();
         }
-        return ResponseEntity.ok(geographicalService.distanceRemaining(type, start, end, unitsGuessed));
+        return ok(graphs).body(routes.names(graph));
     }
 
     @GetMapping("/getConnected")
-    public ResponseEntity<?> getConnected(@RequestParam GeographicalType type, @RequestParam String start, @RequestParam String end, @RequestParam Set<String> unitsGuessed) {
-        if (!geographicalService.unitExists(type, start)) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + start);
-        }if (!geographicalService.unitExists(type, end)) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + start);
+    public ResponseEntity<?> getConnected(@RequestParam String type, @RequestParam String start, @RequestParam String end, @RequestParam Set<String> unitsGuessed) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        int[] connected = queryCache.getConnected(graph, graph.requireUnitId(start), graph.requireUnitId(end), toUnitIds(graph, unitsGuessed));
+        return ok(graphs).body(Arrays.stream(connected).mapToObj(id -> graph.unitNames[id]).collect(Collectors.toSet()));
+    }
+
+    // Everything the client needs after a guess in one call: the distance before and after it, the connected units and the next hint
+    @GetMapping("/turn")
+    public ResponseEntity<TurnResult> turn(@RequestParam String type, @RequestParam String start, @RequestParam String end, @RequestParam(required = false) Set<String> unitsGuessed, @RequestParam(required = false) String guess) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        GameState state = geographicalService.gameState(graph, graph.requireUnitId(start), graph.requireUnitId(end), toUnitIds(graph, unitsGuessed == null ? Set.of() : unitsGuessed));
+        int previousDistance = state.distanceRemaining();
+        if (guess != null) {
+            state.guess(graph.requireUnitId(guess));
         }
-        for (String unit : unitsGuessed) {
-        	if (!geographicalService.unitExists(type, unit)) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unit not found: " + unit);
-        	}
+        int distance = state.distanceRemaining();
+        int next = state.nextUnit();
+        List<String> connected = state.connected().stream().map(id -> graph.unitNames[id]).toList();
+        return ok(graphs).body(new TurnResult(previousDistance, distance, distance - previousDistance, connected, next == -1 ? null : graph.unitNames[next]));
+    }
+
+    // The units of one type in id order, for the id forms of the game endpoints below
+    @GetMapping("/units")
+    public ResponseEntity<Units> getUnits(@RequestParam String type) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = graphs.graph(type);
+        return ok(graphs).body(new Units(type, graph.unitIdsVersion, List.of(graph.unitNames)));
+    }
+
+    // The id forms of the game endpoints take unit ids from /units instead of names and answer with ids. The guessed units
+    // are either a bitset in guessed (see GraphManager.decodeUnitSet) or a list in guessedIds, so an id form request costs
+    // the same whatever the number of guesses. With idsVersion the request fails with 409 once the ids changed.
+
+    @GetMapping(value = "/nextUnit", params = "startId")
+    public ResponseEntity<Integer> getNextUnitById(@RequestParam String type, @RequestParam int startId, @RequestParam int endId,
+            @RequestParam(required = false) String guessed, @RequestParam(required = false) List<Integer> guessedIds, @RequestParam(required = false) String idsVersion) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = idGraph(graphs, type, idsVersion);
+        int next = queryCache.getNextUnit(graph, graph.requireUnitId(startId), graph.requireUnitId(endId), guessedUnits(graph, guessed, guessedIds));
+        if (next == -1) {
+            return ResponseEntity.notFound().header(GRAPH_VERSION, Long.toString(graphs.version())).build();
+        }
+        return ok(graphs).body(next);
+    }
+
+    @GetMapping(value = "/distanceRemaining", params = "startId")
+    public ResponseEntity<Integer> getDistanceRemainingById(@RequestParam String type, @RequestParam int startId, @RequestParam int endId,
+            @RequestParam(required = false) String guessed, @RequestParam(required = false) List<Integer> guessedIds, @RequestParam(required = false) String idsVersion) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = idGraph(graphs, type, idsVersion);
+        return ok(graphs).body(queryCache.distanceRemaining(graph, graph.requireUnitId(startId), graph.requireUnitId(endId), guessedUnits(graph, guessed, guessedIds)));
+    }
+
+    @GetMapping(value = "/optimalDistance", params = "startId")
+    public ResponseEntity<Integer> getOptimalDistanceById(@RequestParam String type, @RequestParam int startId, @RequestParam int endId,
+            @RequestParam(required = false) String idsVersion) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = idGraph(graphs, type, idsVersion);
+        return ok(graphs).body(geographicalService.optimalDistance(graph, graph.requireUnitId(startId), graph.requireUnitId(endId)));
+    }
+
+    @GetMapping(value = "/optimalRoutes", params = "startId")
+    public ResponseEntity<OptimalRoutes> getOptimalRoutesById(@RequestParam String type, @RequestParam int startId, @RequestParam int endId,
+            @RequestParam(required = false) String idsVersion) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = idGraph(graphs, type, idsVersion);
+        OptimalRoutes routes = geographicalService.optimalRoutes(graph, graph.requireUnitId(startId), graph.requireUnitId(endId));
+        if (routes == null) {
+            return ResponseEntity.notFound().header(GRAPH_VERSION, Long.toString(graphs.version())).build();
         }
-        return ResponseEntity.ok(geographicalService.getConnected(type, start, end, unitsGuessed));
+        return ok(graphs).body(routes);
+    }
+
+    @GetMapping(value = "/getConnected", params = "startId")
+    public ResponseEntity<int[]> getConnectedById(@RequestParam String type, @RequestParam int startId, @RequestParam int endId,
+            @RequestParam(required = false) String guessed, @RequestParam(required = false) List<Integer> guessedIds, @RequestParam(required = false) String idsVersion) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = idGraph(graphs, type, idsVersion);
+        return ok(graphs).body(queryCache.getConnected(graph, graph.requireUnitId(startId), graph.requireUnitId(endId), guessedUnits(graph, guessed, guessedIds)));
+    }
+
+    @GetMapping(value = "/turn", params = "startId")
+    public ResponseEntity<TurnIdsResult> turnById(@RequestParam String type, @RequestParam int startId, @RequestParam int endId,
+            @RequestParam(required = false) String guessed, @RequestParam(required = false) List<Integer> guessedIds,
+            @RequestParam(required = false) Integer guessId, @RequestParam(required = false) String idsVersion) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        GraphManager graph = idGraph(graphs, type, idsVersion);
+        GameState state = geographicalService.gameState(graph, graph.requireUnitId(startId), graph.requireUnitId(endId), guessedUnits(graph, guessed, guessedIds));
+        int previousDistance = state.distanceRemaining();
+        if (guessId != null) {
+            state.guess(graph.requireUnitId(guessId));
+        }
+        int distance = state.distanceRemaining();
+        return ok(graphs).body(new TurnIdsResult(previousDistance, distance, distance - previousDistance, state.connected(), state.nextUnit()));
     }
 
     @GetMapping("/geometry/{unitName}")
-    public ResponseEntity<String> getUnitGeometry(@RequestParam GeographicalType type, @PathVariable String unitName) {
-        return ResponseEntity.of(Optional.ofNullable(geographicalService.getUnitGeometry(type, unitName)));
+    public ResponseEntity<byte[]> getUnitGeometry(@RequestParam String type, @PathVariable String unitName,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean twkb = acceptsTwkb(accept);
+        GeometryCache.Entry geometry = twkb ? geometryCache.twkbUnit(type, unitName) : geometryCache.unit(type, unitName);
+        if (geometry == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return geometryResponse(type, geometry, twkb ? TWKB : MediaType.APPLICATION_JSON, ifNoneMatch, acceptEncoding);
     }
 
     @GetMapping("/geometries")
-    public ResponseEntity<List<Pair<String, String>>> getAllGeometries(@RequestParam GeographicalType type) {
-        return ResponseEntity.ok(geographicalService.getAllGeometries(type));
+    public ResponseEntity<byte[]> getAllGeometries(@RequestParam String type,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean twkb = acceptsTwkb(accept);
+        GeometryCache.Entry geometries = twkb ? geometryCache.twkbLayer(type) : geometryCache.layer(type);
+        if (geometries == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return geometryResponse(type, geometries, twkb ? TWKB : MediaType.APPLICATION_JSON, ifNoneMatch, acceptEncoding);
+    }
+
+    @GetMapping("/tiles/{type}/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getTile(@PathVariable GeographicalType type, @PathVariable int z, @PathVariable int x, @PathVariable int y,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (!TilePyramid.isValidTile(z, x, y)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!tilePyramid.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+        return geometryResponse(type.name(), tilePyramid.tile(type, z, x, y), VECTOR_TILE, ifNoneMatch, acceptEncoding);
     }
 
     @GetMapping("/suggestUnits")
-    public ResponseEntity<List<String>> suggestUnits(@RequestParam GeographicalType type, @RequestParam String searchString, @RequestParam Integer topN) {
-        return ResponseEntity.ok(geographicalService.similarNames(type, searchString, topN));
+    public ResponseEntity<List<String>> suggestUnits(@RequestParam String type, @RequestParam String searchString, @RequestParam Integer topN) {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        return ok(graphs).body(graphs.suggestionIndex(type).similarNames(searchString, topN));
     }
 
+    // Reads the built-in types from the database again in the background, behind the queued layers. The progress is at the
+    // returned job, like the one of an uploaded layer.
     @PutMapping("/initDb")
-    public ResponseEntity<?> initDb() {
-    	dbInitializer.initDb();
-        return ResponseEntity.ok(null);
+    public ResponseEntity<IngestJob.Status> initDb() {
+        IngestJob job;
+        try {
+            job = layerIngestService.submitReload(() -> {
+                loadFromDatabase();
+                layerIngestService.compute(tilePyramid::init);
+            });
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/api/layers/jobs/" + job.getId())).body(job.status());
+    }
+
+    public static ResponseEntity.BodyBuilder ok(GeographicalService.Graphs graphs) {
+        return ResponseEntity.ok().header(GRAPH_VERSION, Long.toString(graphs.version()));
+    }
+
+    // GeoJSON stays the default, TWKB is only sent to clients that ask for it
+    private static boolean acceptsTwkb(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.getQualityValue() > 0 && TWKB.equalsTypeAndSubtype(mediaType)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Malformed Accept headers get the default
+        }
+        return false;
+    }
+
+    // Serves precompressed geometries, answering 304 when the client already has this version. The gzipped body is another
+    // representation than the plain one, so it gets an ETag of its own.
+    private static ResponseEntity<byte[]> geometryResponse(String type, GeometryCache.Entry geometry, MediaType mediaType, String ifNoneMatch, String acceptEncoding) {
+        CacheControl cacheControl = CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String eTag = gzip ? gzipETag(geometry.eTag()) : geometry.eTag();
+        if (matchesETag(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(mediaType)
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        byte[] body = gzip ? geometry.gzip() : geometry.content();
+        GameMetrics.geometryServed(type, mediaType.getSubtype(), gzip, body.length);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body);
+        }
+        return response.body(body);
+    }
+
+    // "abc" becomes "abc-gzip"
+    static String gzipETag(String eTag) {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+
+    // gzip or x-gzip, or * when gzip isn't listed itself, with a quality above 0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim().toLowerCase();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0; // A quality that can't be read doesn't accept the coding
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return quality > 0;
+            }
+            if (name.equals("*")) {
+                any = quality > 0;
+            }
+        }
+        return any != null && any;
+    }
+
+    // If-None-Match compares weakly, so W/ prefixes are ignored, and every listed tag has to be compared as a whole
+    static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        Matcher tags = ENTITY_TAG.matcher(ifNoneMatch);
+        while (tags.find()) {
+            if (tags.group(1).equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static GraphManager idGraph(GeographicalService.Graphs graphs, String type, String idsVersion) {
+        GraphManager graph = graphs.graph(type);
+        if (idsVersion != null && !idsVersion.equals(graph.unitIdsVersion)) {
+            throw new UnitIdsChangedException(type, graph.unitIdsVersion);
+        }
+        return graph;
+    }
+
+    private static BitSet guessedUnits(GraphManager graph, String guessed, List<Integer> guessedIds) {
+        BitSet units = guessed == null || guessed.isEmpty() ? new BitSet(graph.size()) : graph.decodeUnitSet(guessed);
+        if (guessedIds != null) {
+            for (int unitId : guessedIds) {
+                units.set(graph.requireUnitId(unitId));
+            }
+        }
+        return units;
+    }
+
+    private static BitSet toUnitIds(GraphManager graph, Set<String> unitNames) {
+        BitSet ids = new BitSet(graph.size());
+        for (String unit : unitNames) {
+            ids.set(graph.requireUnitId(unit));
+        }
+        return ids;
     }
 }
@@ -10,4 +10,14 @@ import com.borderhopper.GeographicalUnit.GeographicalType;
 @Repository
 public interface GeographicalRepository extends JpaRepository<GeographicalUnit, GeographicalUnitId> {
     List<GeographicalUnit> findByType(GeographicalType type);
+
+    boolean existsByType(GeographicalType type);
+
+    // Only the name and geometry columns, without loading the connected units
+    interface UnitGeometry {
+        String getUnitName();
+        String getGeojson();
+        byte[] getTwkb();
+    }
+    List<UnitGeometry> findGeometriesByType(GeographicalType type);
 }
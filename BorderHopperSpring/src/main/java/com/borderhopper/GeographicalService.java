@@ -1,254 +1,229 @@
 package com.borderhopper;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
 
 import com.borderhopper.GeographicalUnit.GeographicalType;
 
-import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class GeographicalService {
 
+	private static final int PUZZLE_SAMPLE_ATTEMPTS = 16;
+
 	@Autowired
     private GeographicalRepository geographicalRepository;
 	
-	private class GraphManager {
-		public List<String> unitList = new ArrayList<>();
-		public Set<String> unitSet;
-		public Map<String, Set<String>> graph = new HashMap<>();
-		public Map<String, Integer> component = new HashMap<>();
-	
-	    public void init(GeographicalType type) {
-	        // Initialize the graph
-	        List<GeographicalUnit> units = geographicalRepository.findByType(type);
-	        for (GeographicalUnit unit : units) {
-	            graph.put(unit.getUnitName(), new HashSet<>(unit.getConnectedUnitNames()));
-	            unitList.add(unit.getUnitName());
-	        }
-	        unitSet = new HashSet<>(unitList);
-	        int componentId = 0;
-	        for (GeographicalUnit unit : units) {
-	        	if (component.containsKey(unit.getUnitName())) {
-	        		continue;
-	        	}
-	        	Queue<String> queue = new LinkedList<String>();
-	        	queue.add(unit.getUnitName());
-	        	component.put(unit.getUnitName(), componentId);
-	        	while (!queue.isEmpty()) {
-	        		String front = queue.poll();
-	        		for (String neighbour : graph.get(front)) {
-	        			if (component.containsKey(neighbour)) {
-	        				continue;
-	        			}
-	        			component.put(neighbour, componentId);
-	        			queue.add(neighbour);
-	        		}
-	        	}
-	        	componentId++;
-	        }
-	    }
+	// Every type's graph and suggestions at one point in time, keyed by type name: the GeographicalType ones built from the
+	// database and custom layers added while running. Never changed once published, a reload or a new layer publishes a new
+	// one with the next version, so a request that reads current() once sees the same graphs until it is done.
+	public record Graphs(long version, Map<String, GraphManager> graphs, Map<String, SuggestionIndex> suggestionIndexes) {
+
+		public GraphManager graph(String type) {
+			GraphManager graph = graphs.get(type);
+			if (graph == null) {
+				throw new TypeNotFoundException(type);
+			}
+			return graph;
+		}
+
+		public SuggestionIndex suggestionIndex(String type) {
+			SuggestionIndex index = suggestionIndexes.get(type);
+			if (index == null) {
+				throw new TypeNotFoundException(type);
+			}
+			return index;
+		}
 	}
-	private Map<GeographicalType, GraphManager> graphs;
+
+	private final AtomicReference<Graphs> current = new AtomicReference<>(new Graphs(0, Map.of(), Map.of()));
+
 	public void init() {
-		graphs = new HashMap<>();
+		Map<String, GraphManager> newGraphs = new HashMap<>();
 		for (GeographicalType type : GeographicalType.values()) {
-			graphs.put(type, new GraphManager());
-			graphs.get(type).init(type);
+			// Sorted, so the unit ids stay the same as long as the units do
+			List<GeographicalUnit> units = new ArrayList<>(geographicalRepository.findByType(type));
+			units.sort(Comparator.comparing(GeographicalUnit::getUnitName));
+			newGraphs.put(type.name(), new GraphManager(type.name(), units));
 		}
+		init(newGraphs);
 	}
 
-    public Pair<String, String> getRandomConnectedUnits(GeographicalType type) {
-        Random random = new Random();
-    	GraphManager graph = graphs.get(type);
-        
-        while (true) {
-            String startUnit = graph.unitList.get(random.nextInt(graph.unitList.size()));
-            String targetUnit = graph.unitList.get(random.nextInt(graph.unitList.size()));
+	// Uses graphs that were already built, for example the ones from a Snapshot. Types that are not replaced stay as they are.
+	public void init(Map<String, GraphManager> newGraphs) {
+		Map<String, SuggestionIndex> newSuggestionIndexes = new HashMap<>();
+		for (Map.Entry<String, GraphManager> graph : newGraphs.entrySet()) {
+			newSuggestionIndexes.put(graph.getKey(), new SuggestionIndex(graph.getKey(), graph.getValue().unitNames));
+		}
+		// Everything expensive is built before, so a publisher racing another one only copies the maps again
+		current.updateAndGet(old -> {
+			Map<String, GraphManager> graphs = new HashMap<>(old.graphs());
+			graphs.putAll(newGraphs);
+			Map<String, SuggestionIndex> suggestionIndexes = new HashMap<>(old.suggestionIndexes());
+			suggestionIndexes.putAll(newSuggestionIndexes);
+			return new Graphs(old.version() + 1, Map.copyOf(graphs), Map.copyOf(suggestionIndexes));
+		});
+	}
 
-            if (!startUnit.equals(targetUnit) && graph.component.get(startUnit).equals(graph.component.get(targetUnit)) && !graph.graph.get(startUnit).contains(targetUnit)) {
-                return Pair.of(startUnit, targetUnit);
+	// Adds or replaces a single type, used for custom layers once their ingest finished
+	public void addType(String type, GraphManager graph) {
+		init(Map.of(type, graph));
+	}
+
+	public Graphs current() {
+		return current.get();
+	}
+
+    public int[] getRandomConnectedUnits(GraphManager graph) {
+        return getRandomConnectedUnits(graph, 1, Integer.MAX_VALUE);
+    }
+
+    // Picks a start and end unit whose optimal path has between minSteps and maxSteps units in between, null if there is no such pair
+    public int[] getRandomConnectedUnits(GraphManager graph, int minSteps, int maxSteps) {
+        if (graph.puzzles == null) {
+            return sampleConnectedUnits(graph, minSteps, maxSteps, null);
+        }
+        return graph.puzzles.random(minSteps, maxSteps);
+    }
+
+    public int[] getRandomConnectedUnits(GraphManager graph, PuzzleIndex.Difficulty difficulty) {
+        if (graph.puzzles == null) {
+            return sampleConnectedUnits(graph, 1, Integer.MAX_VALUE, difficulty);
+        }
+        return graph.puzzles.random(difficulty);
+    }
+
+    // For graphs too large for a PuzzleIndex: a search from a random start, then a random end among the units it reached with a
+    // fitting number of steps. A difficulty takes the thirds of the steps reached from that start. Not uniform over all pairs
+    // like the index, and gives up after a few starts without a fitting end.
+    private int[] sampleConnectedUnits(GraphManager graph, int minSteps, int maxSteps, PuzzleIndex.Difficulty difficulty) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ZeroOneBfs bfs = ZeroOneBfs.acquire();
+        try {
+            for (int attempt = 0; attempt < PUZZLE_SAMPLE_ATTEMPTS && graph.size() > 0; attempt++) {
+                int start = random.nextInt(graph.size());
+                bfs.run(graph, -1, start, new BitSet());
+                int min = minSteps;
+                int max = maxSteps;
+                if (difficulty != null) {
+                    int farthest = 0;
+                    for (int unit = 0; unit < graph.size(); unit++) {
+                        if (bfs.visited(unit)) {
+                            farthest = Math.max(farthest, bfs.distance(unit) - 1);
+                        }
+                    }
+                    int thirds = PuzzleIndex.Difficulty.values().length;
+                    min = 1 + farthest * difficulty.ordinal() / thirds;
+                    max = farthest * (difficulty.ordinal() + 1) / thirds;
+                }
+                // Reservoir sampling, the units reached are only known after the search
+                int end = -1;
+                int fitting = 0;
+                for (int unit = 0; unit < graph.size(); unit++) {
+                    int steps = bfs.visited(unit) ? bfs.distance(unit) - 1 : -1;
+                    if (steps >= min && steps <= max && random.nextInt(++fitting) == 0) {
+                        end = unit;
+                    }
+                }
+                if (end != -1) {
+                    return new int[] { start, end };
+                }
             }
+            return null;
+        } finally {
+            bfs.release();
         }
     }
+
+    // A difficulty takes precedence over a range of steps, without either the puzzle has at least one unit in between
+    public int[] getRandomConnectedUnits(GraphManager graph, Integer minSteps, Integer maxSteps, PuzzleIndex.Difficulty difficulty) {
+        if (difficulty != null) {
+            return getRandomConnectedUnits(graph, difficulty);
+        }
+        return getRandomConnectedUnits(graph, minSteps == null ? 1 : minSteps, maxSteps == null ? Integer.MAX_VALUE : maxSteps);
+    }
+
+    // Number of units between start and end on an optimal path, -1 if they are not connected
+    public int optimalDistance(GraphManager graph, int start, int end) {
+    	int distance = graph.distance(start, end);
+    	return distance == -1 ? -1 : distance - 1;
+    }
+
+    // Units on any optimal path, the number of optimal paths and one of them, null if start and end are not connected
+    public OptimalRoutes optimalRoutes(GraphManager graph, int start, int end) {
+    	return OptimalRoutes.of(graph, start, end);
+    }
+
+    public int nextHop(GraphManager graph, int from, int to) {
+    	return graph.nextHop(from, to);
+    }
     
-    public String getNextUnit(GeographicalType type, String start, String end, Set<String> unitsGuessed) {
-    	GraphManager graph = graphs.get(type);
-    	Map<String, String> parent = new HashMap<>();
-    	Deque<String> queue = new LinkedList<String>();
-    	queue.add(end);
-    	parent.put(end, end);
-    	boolean foundStart = false;
-    	while (!queue.isEmpty() && !foundStart) {
-    		String front = queue.poll();
-    		for (String neighbour : graph.graph.get(front)) {
-    			if (parent.containsKey(neighbour)) {
-    				continue;
-    			}
-    			parent.put(neighbour, front);
-    			if (unitsGuessed.contains(neighbour)) {
-    				queue.addFirst(neighbour);
-    			}
-    			else {
-    				queue.addLast(neighbour);
-    			}
-    			queue.add(neighbour);
-    			if (neighbour.equals(start)) {
-    				foundStart = true;
-    				break;
-    			}
-    		}
-    	}
-    	if (!foundStart) {
-    		return null;
+    public int getNextUnit(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+    	if (unitsGuessed.isEmpty()) {
+    		int next = graph.nextHop(start, end);
+    		return next == end ? -1 : next;
     	}
-    	String current = parent.get(start);
-    	while (current != end) {
-    		if (!unitsGuessed.contains(current)) {
-    			return current;
+    	GraphSearchEvent event = new GraphSearchEvent();
+    	event.begin();
+    	ZeroOneBfs bfs = ZeroOneBfs.acquire();
+    	try {
+    		int distance = bfs.run(graph, start, end, unitsGuessed);
+    		GameMetrics.bfs(event, GameMetrics.Query.NextUnit, graph, start, end, unitsGuessed, bfs.visitedCount());
+    		if (distance == -1) {
+    			return -1;
     		}
-    		current = parent.get(current);
-    	}
-    	return null;
-    }
-    
-    public Integer distanceRemaining(GeographicalType type, String start, String end, Set<String> unitsGuessed) {
-    	GraphManager graph = graphs.get(type);
-    	Map<String, Integer> distance = new HashMap<>();
-    	Deque<String> queue = new LinkedList<String>();
-    	queue.add(end);
-    	distance.put(end, 0);
-    	boolean foundStart = false;
-    	while (!queue.isEmpty() && !foundStart) {
-    		String front = queue.poll();
-    		int frontDist = distance.get(front);
-    		for (String neighbour : graph.graph.get(front)) {
-    			if (distance.containsKey(neighbour)) {
-    				continue;
-    			}
-    			if (unitsGuessed.contains(neighbour)) {
-        			distance.put(neighbour, frontDist);
-    				queue.addFirst(neighbour);
-    			}
-    			else {
-        			distance.put(neighbour, frontDist + 1);
-    				queue.addLast(neighbour);
-    			}
-    			queue.add(neighbour);
-    			if (neighbour.equals(start)) {
-    				foundStart = true;
-    				break;
+    		int current = bfs.parent(start);
+    		while (current != end) {
+    			if (!unitsGuessed.get(current)) {
+    				return current;
     			}
+    			current = bfs.parent(current);
     		}
-    	}
-    	if (!foundStart) {
     		return -1;
+    	} finally {
+    		bfs.release();
     	}
-    	return distance.get(start) - 1; // Don't count start into distance
     }
     
-    public Set<String> getConnected(GeographicalType type, String start, String end, Set<String> unitsGuessed) {
-    	GraphManager graph = graphs.get(type);
-    	Set<String> connected = new HashSet<>();
-    	Queue<String> queue = new LinkedList<String>();
-    	queue.add(end);
-    	queue.add(start);
-    	connected.add(start);
-    	connected.add(end);
-    	while (!queue.isEmpty()) {
-    		String front = queue.poll();
-    		for (String neighbour : graph.graph.get(front)) {
-    			if (connected.contains(neighbour)) {
-    				continue;
-    			}
-    			if (unitsGuessed.contains(neighbour)) {
-    				connected.add(neighbour);
-    				queue.add(neighbour);
-    			}
-    		}
+    public Integer distanceRemaining(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+    	if (unitsGuessed.isEmpty()) {
+    		return optimalDistance(graph, start, end);
     	}
-    	connected.remove(start);
-    	connected.remove(end);
-    	return connected;
+    	GraphSearchEvent event = new GraphSearchEvent();
+    	event.begin();
+    	ZeroOneBfs bfs = ZeroOneBfs.acquire();
+    	int distance;
+    	try {
+    		distance = bfs.run(graph, start, end, unitsGuessed);
+    		GameMetrics.bfs(event, GameMetrics.Query.DistanceRemaining, graph, start, end, unitsGuessed, bfs.visitedCount());
+    	} finally {
+    		bfs.release();
+    	}
+    	if (distance == -1) {
+    		return -1;
+    	}
+    	return distance - 1; // Don't count start into distance
     }
     
-    public Boolean unitExists(GeographicalType type, String unit) {
-    	GraphManager graph = graphs.get(type);
-    	return graph.unitSet.contains(unit);
+    // Distances, connected region and hint for a set of guesses, computed with a single traversal
+    public GameState gameState(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+    	return new GameState(graph, start, end, unitsGuessed);
     }
     
-    public String getUnitGeometry(GeographicalType type, String unitName) {
-        return geographicalRepository.findById(new GeographicalUnitId(unitName, type))
-                .map(GeographicalUnit::getGeojson)
-                .orElse(null);
-    }
-
-    public List<Pair<String,String>> getAllGeometries(GeographicalType type) {
-        return geographicalRepository.findByType(type).stream()
-                .map(u -> Pair.of(u.getUnitName(), u.getGeojson())).toList();
-    }
-
-    public List<String> similarNames(GeographicalType type, String searchString, int topN) {
-    	GraphManager graph = graphs.get(type);
-        List<Pair<String, Integer>> results = new ArrayList<>();
-        searchString = searchString.toLowerCase();
-        searchString = Normalizer.normalize(searchString, Normalizer.Form.NFD);
-
-        for (String unit : graph.unitList) {
-            // Calculate the distance between the prefix and the item
-        	String unitName = unit;
-        	if (type == GeographicalType.CountryUnfiltered) {
-        		unitName = unitName.replace("Unfiltered", "");
-        	}
-        	String normalizedUnitName = Normalizer.normalize(unitName.toLowerCase(), Normalizer.Form.NFD);
-        	Integer distance = calculateDistance(searchString, normalizedUnitName);
-        	if (distance != -1) {
-        		results.add(Pair.of(unitName, distance));
-        	}
-        }
-
-        // Sort the results by distance (ascending)
-        results.sort(Comparator.comparing(Pair::getSecond));
-
-        // Take the top N results (if available)
-        if (results.size() > topN) {
-            results = results.subList(0, topN);
-        }
-
-        return results.stream().map(x -> x.getFirst()).toList();
-    }
-
-    private static int calculateDistance(String search, String unitName) {
-    	int penaltyFront = 100;
-    	int penaltyGap = 1000;
-    	int penaltySkipLetter = 10000;
-    	int distanceCutoff = 20100; // Score for which we will not consider this a candidate
-        int[][] dp = new int[search.length() + 1][unitName.length() + 1];
-
-        for (int j = 0; j <= unitName.length(); j++) {
-            dp[search.length()][j] = unitName.length() - j; // Passed all unitName letters
-        }
-
-        for (int i = 0; i < search.length(); i++) {
-            dp[i][unitName.length()] = (search.length() - i) * penaltySkipLetter;
-        }
-
-        for (int i = search.length() - 1; i >= 0; i--) {
-            for (int j = unitName.length() - 1; j >= 0; j--) {
-            	dp[i][j] = distanceCutoff;
-                if (search.charAt(i) == unitName.charAt(j)) { // Match!
-                	dp[i][j] = Math.min(dp[i][j], dp[i + 1][j + 1]);
-                }
-                dp[i][j] = Math.min(dp[i][j], dp[i + 1][j] + penaltySkipLetter);
-                int penaltyMoveJ = i == 0 ? penaltyFront : penaltyGap;
-                dp[i][j] = Math.min(dp[i][j], dp[i][j + 1] + penaltyMoveJ);
-            }
-        }
-        if (dp[0][0] >= distanceCutoff) {
-        	return -1;
-        }
-        return dp[0][0];
+    // Guessed units connected to start or end through guessed units, without start and end
+    public int[] getConnected(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+    	GraphSearchEvent event = new GraphSearchEvent();
+    	event.begin();
+    	ZeroOneBfs bfs = ZeroOneBfs.acquire();
+    	try {
+    		int[] connected = bfs.connected(graph, start, end, unitsGuessed);
+    		GameMetrics.bfs(event, GameMetrics.Query.Connected, graph, start, end, unitsGuessed, bfs.visitedCount());
+    		return connected;
+    	} finally {
+    		bfs.release();
+    	}
     }
 }
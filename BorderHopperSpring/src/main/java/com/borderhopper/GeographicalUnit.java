@@ -28,6 +28,9 @@ public class GeographicalUnit {
     @Column(name = "geojson", columnDefinition = "TEXT")
     private String geojson;
 
+    @Column(name = "twkb")
+    private byte[] twkb;
+
     @ElementCollection(fetch = FetchType.EAGER)
     private Set<String> connectedUnitNames;
 
@@ -47,6 +50,14 @@ public class GeographicalUnit {
         this.geojson = geojson;
     }
 
+    public byte[] getTwkb() {
+        return twkb;
+    }
+
+    public void setTwkb(byte[] twkb) {
+        this.twkb = twkb;
+    }
+
     public Set<String> getConnectedUnitNames() {
         return connectedUnitNames;
     }
@@ -0,0 +1,163 @@
+package com.borderhopper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.geojson.GeoJsonReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import com.borderhopper.GeographicalUnit.GeographicalType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// GeoJSON and TWKB of every unit and of every whole type, serialized and gzipped once since geometries don't change after they were stored.
+// A whole type in TWKB is a sequence of units, each one a varint length and UTF-8 name followed by a varint length and its TWKB.
+@Component
+public class GeometryCache {
+
+    public record Entry(byte[] content, byte[] gzip, String eTag) {
+    }
+
+    @Autowired
+    private GeographicalRepository geographicalRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Value("${borderhopper.geometry.twkb-precision:5}")
+    private int twkbPrecision;
+
+    // Keyed by type name, like the graphs of GeographicalService
+    private volatile Map<String, Map<String, Entry>> units = Map.of();
+    private volatile Map<String, Entry> layers = Map.of();
+    private volatile Map<String, Map<String, Entry>> twkbUnits = Map.of();
+    private volatile Map<String, Entry> twkbLayers = Map.of();
+
+    public void init() {
+        Map<String, Map<String, Entry>> units = new HashMap<>();
+        Map<String, Entry> layers = new HashMap<>();
+        Map<String, Map<String, Entry>> twkbUnits = new HashMap<>();
+        Map<String, Entry> twkbLayers = new HashMap<>();
+        for (GeographicalType type : GeographicalType.values()) {
+            put(type.name(), geographicalRepository.findGeometriesByType(type), units, layers, twkbUnits, twkbLayers);
+        }
+        init(units, layers, twkbUnits, twkbLayers);
+    }
+
+    // Uses entries that were already serialized and compressed, for example the ones from a Snapshot. Types that are not
+    // replaced stay as they are.
+    public synchronized void init(Map<String, Map<String, Entry>> units, Map<String, Entry> layers,
+            Map<String, Map<String, Entry>> twkbUnits, Map<String, Entry> twkbLayers) {
+        this.units = merge(this.units, units);
+        this.layers = merge(this.layers, layers);
+        this.twkbUnits = merge(this.twkbUnits, twkbUnits);
+        this.twkbLayers = merge(this.twkbLayers, twkbLayers);
+    }
+
+    // Adds or replaces a single type, used for custom layers once their ingest finished
+    public void addType(String type, List<? extends GeographicalRepository.UnitGeometry> geometries) {
+        Map<String, Map<String, Entry>> units = new HashMap<>();
+        Map<String, Entry> layers = new HashMap<>();
+        Map<String, Map<String, Entry>> twkbUnits = new HashMap<>();
+        Map<String, Entry> twkbLayers = new HashMap<>();
+        put(type, geometries, units, layers, twkbUnits, twkbLayers);
+        init(units, layers, twkbUnits, twkbLayers);
+    }
+
+    private void put(String type, List<? extends GeographicalRepository.UnitGeometry> geometries,
+            Map<String, Map<String, Entry>> units, Map<String, Entry> layers,
+            Map<String, Map<String, Entry>> twkbUnits, Map<String, Entry> twkbLayers) {
+        GeoJsonReader reader = new GeoJsonReader();
+        Map<String, Entry> typeUnits = new HashMap<>();
+        Map<String, Entry> typeTwkbUnits = new HashMap<>();
+        List<Pair<String, String>> all = new ArrayList<>();
+        ByteArrayOutputStream allTwkb = new ByteArrayOutputStream();
+        for (GeographicalRepository.UnitGeometry unit : geometries) {
+            typeUnits.put(unit.getUnitName(), entry(unit.getGeojson().getBytes(StandardCharsets.UTF_8)));
+            all.add(Pair.of(unit.getUnitName(), unit.getGeojson()));
+
+            byte[] twkb = unit.getTwkb();
+            if (twkb == null) { // Units stored before DbInitializer wrote TWKB
+                try {
+                    twkb = TwkbWriter.write(reader.read(unit.getGeojson()), twkbPrecision);
+                } catch (ParseException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+            }
+            typeTwkbUnits.put(unit.getUnitName(), entry(twkb));
+            byte[] name = unit.getUnitName().getBytes(StandardCharsets.UTF_8);
+            writeVarint(allTwkb, name.length);
+            allTwkb.writeBytes(name);
+            writeVarint(allTwkb, twkb.length);
+            allTwkb.writeBytes(twkb);
+        }
+        units.put(type, typeUnits);
+        twkbUnits.put(type, typeTwkbUnits);
+        twkbLayers.put(type, entry(allTwkb.toByteArray()));
+        try {
+            layers.put(type, entry(objectMapper.writeValueAsBytes(all)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <V> Map<String, V> merge(Map<String, V> current, Map<String, V> replacements) {
+        Map<String, V> merged = new HashMap<>(current);
+        merged.putAll(replacements);
+        return merged;
+    }
+
+    // null when the type or the unit doesn't exist
+    public Entry unit(String type, String unitName) {
+        return units.getOrDefault(type, Map.of()).get(unitName);
+    }
+
+    public Entry layer(String type) {
+        return layers.get(type);
+    }
+
+    public Entry twkbUnit(String type, String unitName) {
+        return twkbUnits.getOrDefault(type, Map.of()).get(unitName);
+    }
+
+    public Entry twkbLayer(String type) {
+        return twkbLayers.get(type);
+    }
+
+    public Map<String, Entry> units(String type) {
+        return units.get(type);
+    }
+
+    public Map<String, Entry> twkbUnits(String type) {
+        return twkbUnits.get(type);
+    }
+
+    public static Entry entry(byte[] content) {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Entry(content, gzip.toByteArray(), "\"" + DigestUtils.md5DigestAsHex(content) + "\"");
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,214 @@
+package com.borderhopper;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GraphManager {
+    public final String type;
+    // Changes whenever the units or their order change, so clients that keep unit ids can tell when to fetch them again
+    public final String unitIdsVersion;
+    // Every unit gets a dense id, neighbours of unit i are targets[offsets[i]] .. targets[offsets[i + 1] - 1]
+    public final String[] unitNames;
+    public final Map<String, Integer> unitIds;
+    public final int[] offsets;
+    public final int[] targets;
+    public final int[] component;
+    public final int componentCount;
+    // Both null for graphs with more than DistanceMatrix.MAX_UNITS units, which search instead
+    public final DistanceMatrix distances;
+    public final PuzzleIndex puzzles;
+
+    public GraphManager(String type, List<GeographicalUnit> units) {
+        this(type, units.stream().map(GeographicalUnit::getUnitName).toArray(String[]::new),
+                units.stream().map(GeographicalUnit::getConnectedUnitNames).toList());
+    }
+
+    // connectedUnitNames holds the names of the neighbours of each unit, in the same order as unitNames
+    public GraphManager(String type, String[] unitNames, List<? extends Collection<String>> connectedUnitNames) {
+        int n = unitNames.length;
+        this.type = type;
+        this.unitNames = unitNames;
+        this.unitIdsVersion = unitIdsVersion(unitNames);
+        unitIds = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            unitIds.put(unitNames[i], i);
+        }
+
+        // Build the compressed sparse rows, dropping self loops and names that are not part of this type
+        offsets = new int[n + 1];
+        int[][] rows = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int[] row = new int[connectedUnitNames.get(i).size()];
+            int size = 0;
+            for (String neighbour : connectedUnitNames.get(i)) {
+                Integer id = unitIds.get(neighbour);
+                if (id != null && id != i) {
+                    row[size++] = id;
+                }
+            }
+            rows[i] = Arrays.copyOf(row, size);
+            Arrays.sort(rows[i]);
+            offsets[i + 1] = offsets[i] + size;
+        }
+        targets = new int[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(rows[i], 0, targets, offsets[i], rows[i].length);
+        }
+
+        component = new int[n];
+        Arrays.fill(component, -1);
+        int[] queue = new int[n];
+        int componentId = 0;
+        for (int i = 0; i < n; i++) {
+            if (component[i] != -1) {
+                continue;
+            }
+            int head = 0, tail = 0;
+            queue[tail++] = i;
+            component[i] = componentId;
+            while (head < tail) {
+                int front = queue[head++];
+                for (int e = offsets[front]; e < offsets[front + 1]; e++) {
+                    int neighbour = targets[e];
+                    if (component[neighbour] != -1) {
+                        continue;
+                    }
+                    component[neighbour] = componentId;
+                    queue[tail++] = neighbour;
+                }
+            }
+            componentId++;
+        }
+        componentCount = componentId;
+        distances = n <= DistanceMatrix.MAX_UNITS ? new DistanceMatrix(this) : null;
+        puzzles = distances != null ? new PuzzleIndex(this) : null;
+    }
+
+    // Restores a graph from its compressed sparse rows and components, as stored in a Snapshot
+    public GraphManager(String type, String[] unitNames, int[] offsets, int[] targets, int[] component) {
+        this.type = type;
+        this.unitNames = unitNames;
+        this.unitIdsVersion = unitIdsVersion(unitNames);
+        this.unitIds = new HashMap<>(unitNames.length * 2);
+        for (int i = 0; i < unitNames.length; i++) {
+            unitIds.put(unitNames[i], i);
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+        this.component = component;
+        this.componentCount = Arrays.stream(component).max().orElse(-1) + 1;
+        this.distances = unitNames.length <= DistanceMatrix.MAX_UNITS ? new DistanceMatrix(this) : null;
+        this.puzzles = distances != null ? new PuzzleIndex(this) : null;
+    }
+
+    public int size() {
+        return unitNames.length;
+    }
+
+    public int unitId(String unitName) {
+        Integer id = unitIds.get(unitName);
+        return id == null ? -1 : id;
+    }
+
+    // Same as unitId, but rejects names that are not part of this type
+    public int requireUnitId(String unitName) {
+        int id = unitId(unitName);
+        if (id == -1) {
+            throw new UnitNotFoundException(unitName);
+        }
+        return id;
+    }
+
+    // Rejects ids that are not part of this type
+    public int requireUnitId(int unitId) {
+        if (unitId < 0 || unitId >= unitNames.length) {
+            throw new UnitNotFoundException(unitId);
+        }
+        return unitId;
+    }
+
+    // A set of units sent as URL safe base64 of the little endian bits, unit i is bit i % 8 of byte i / 8
+    public BitSet decodeUnitSet(String base64) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(base64);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidUnitSetException("Unit set is not URL safe base64");
+        }
+        BitSet units = BitSet.valueOf(bytes);
+        if (units.length() > unitNames.length) {
+            throw new InvalidUnitSetException("Unit set has " + units.length() + " bits, " + type + " has " + unitNames.length + " units");
+        }
+        return units;
+    }
+
+    public static String encodeUnitSet(BitSet units) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(units.toByteArray());
+    }
+
+    // Hop distance between two units, -1 when they are not connected
+    public int distance(int from, int to) {
+        if (distances != null) {
+            return distances.distance(from, to);
+        }
+        if (from == to) {
+            return 0;
+        }
+        ZeroOneBfs bfs = ZeroOneBfs.acquire();
+        try {
+            return bfs.run(this, from, to, new BitSet());
+        } finally {
+            bfs.release();
+        }
+    }
+
+    // Neighbour of from that is one hop closer to to, -1 if there is none
+    public int nextHop(int from, int to) {
+        if (distances != null) {
+            return distances.nextHop(from, to);
+        }
+        if (from == to) {
+            return -1;
+        }
+        ZeroOneBfs bfs = ZeroOneBfs.acquire();
+        try {
+            return bfs.run(this, from, to, new BitSet()) == -1 ? -1 : bfs.parent(from);
+        } finally {
+            bfs.release();
+        }
+    }
+
+    // Hop distances from one unit to every unit, -1 for the ones it is not connected to
+    public int[] distancesFrom(int unit) {
+        int[] row = new int[unitNames.length];
+        if (distances != null) {
+            for (int other = 0; other < row.length; other++) {
+                row[other] = distances.distance(unit, other);
+            }
+            return row;
+        }
+        ZeroOneBfs bfs = ZeroOneBfs.acquire();
+        try {
+            bfs.run(this, -1, unit, new BitSet());
+            for (int other = 0; other < row.length; other++) {
+                row[other] = bfs.visited(other) ? bfs.distance(other) : -1;
+            }
+            return row;
+        } finally {
+            bfs.release();
+        }
+    }
+
+    public boolean isNeighbour(int unit, int other) {
+        return Arrays.binarySearch(targets, offsets[unit], offsets[unit + 1], other) >= 0;
+    }
+
+    private static String unitIdsVersion(String[] unitNames) {
+        return Integer.toHexString(Arrays.hashCode(unitNames));
+    }
+}
@@ -0,0 +1,36 @@
+package com.borderhopper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One graph search made for a game request, see GameMetrics.Query for the kinds of searches
+@Name("com.borderhopper.GraphSearch")
+@Label("Graph Search")
+@Category("BorderHopper")
+@Description("A search through the graph of one type for a game request")
+@StackTrace(false)
+public class GraphSearchEvent extends Event {
+
+    @Label("Query")
+    public String query;
+
+    @Label("Type")
+    public String type;
+
+    @Label("Start")
+    public String start;
+
+    @Label("End")
+    public String end;
+
+    @Label("Guesses")
+    @Description("Units guessed in the game so far")
+    public int guesses;
+
+    @Label("Units Visited")
+    public int visited;
+}
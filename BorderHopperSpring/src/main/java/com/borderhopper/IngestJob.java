@@ -0,0 +1,90 @@
+package com.borderhopper;
+
+// Progress of one uploaded layer going through LayerIngestService. Only its worker thread changes it, the status is read
+// by request threads. The time spent in every stage, including the queue, is recorded in GameMetrics.
+public class IngestJob {
+
+    public enum Stage {
+        Queued,
+        Reading,
+        Simplifying,
+        Connecting,
+        Saving,
+        Done,
+        Failed
+    }
+
+    // processed and total count the features of the current stage, total is -1 while it isn't known yet
+    public record Status(String id, String layer, Stage stage, int processed, int total, String error) {
+    }
+
+    private final String id;
+    private final String layer;
+    private volatile Status status;
+    private volatile long finishedAt;
+    private long stageStartNanos = System.nanoTime();
+    private IngestPhaseEvent stageEvent = begin();
+
+    public IngestJob(String id, String layer) {
+        this.id = id;
+        this.layer = layer;
+        this.status = new Status(id, layer, Stage.Queued, 0, -1, null);
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    public void stage(Stage stage, int total) {
+        endStage();
+        status = new Status(id, layer, stage, 0, total, null);
+    }
+
+    public void progress(int processed) {
+        Status current = status;
+        status = new Status(id, layer, current.stage(), processed, current.total(), null);
+    }
+
+    public void done() {
+        endStage();
+        status = new Status(id, layer, Stage.Done, 0, -1, null);
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public void fail(String error) {
+        endStage();
+        Status current = status;
+        status = new Status(id, layer, Stage.Failed, current.processed(), current.total(), error);
+        finishedAt = System.currentTimeMillis();
+    }
+
+    private void endStage() {
+        long now = System.nanoTime();
+        GameMetrics.ingestPhase(layer, status.stage(), now - stageStartNanos);
+        GameMetrics.commit(stageEvent, layer, status.stage());
+        stageStartNanos = now;
+        stageEvent = begin();
+    }
+
+    private static IngestPhaseEvent begin() {
+        IngestPhaseEvent event = new IngestPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != 0;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,19 @@
+package com.borderhopper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One phase of building a type in DbInitializer or a custom layer in LayerIngestService
+@Name("com.borderhopper.IngestPhase")
+@Label("Ingest Phase")
+@Category("BorderHopper")
+public class IngestPhaseEvent extends Event {
+
+    @Label("Layer")
+    public String layer;
+
+    @Label("Phase")
+    public String phase;
+}
@@ -0,0 +1,10 @@
+package com.borderhopper;
+
+public class InvalidUnitSetException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidUnitSetException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,108 @@
+package com.borderhopper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/layers")
+public class LayerController {
+
+    @Autowired
+    private LayerIngestService layerIngestService;
+    @Autowired
+    private GeographicalService geographicalService;
+    @Autowired
+    private AdminToken adminToken;
+    @Value("${borderhopper.ingest.max-upload-bytes:268435456}")
+    private long maxUploadBytes;
+
+    // Every type that can be played, the built-in ones and the custom layers
+    @GetMapping
+    public ResponseEntity<List<String>> getLayers() {
+        GeographicalService.Graphs graphs = geographicalService.current();
+        return GeographicalController.ok(graphs).body(graphs.graphs().keySet().stream().sorted().toList());
+    }
+
+    // Uploads a GeoJSON FeatureCollection as the request body. The request only stores the file, it is processed in the
+    // background and its progress is at the returned job. Tolerance is in degrees, like the built-in types use. Uploads need
+    // the admin token, and replacing a layer that exists already has to be asked for with replace=true.
+    @PostMapping("/{layer}")
+    public ResponseEntity<IngestJob.Status> uploadLayer(@RequestHeader(value = AdminToken.HEADER, required = false) String token,
+            @PathVariable String layer, @RequestParam String nameProperty, @RequestParam(defaultValue = "0.0005") double tolerance,
+            @RequestParam(required = false) String sourceCrs, @RequestParam(defaultValue = "false") boolean replace,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength, InputStream body) throws IOException {
+        ResponseEntity<IngestJob.Status> rejected = adminToken.reject(token);
+        if (rejected != null) {
+            return rejected;
+        }
+        if (!LayerIngestService.isValidLayerName(layer) || !(tolerance >= 0 && tolerance < 1)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!replace && layerIngestService.exists(layer)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (contentLength != null && contentLength > maxUploadBytes) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        Path file = Files.createTempFile("layer-", ".geojson");
+        try {
+            if (!copy(body, file, maxUploadBytes)) {
+                Files.deleteIfExists(file);
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        IngestJob job;
+        try {
+            job = layerIngestService.submit(layer, file, nameProperty, tolerance, sourceCrs);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().location(URI.create("/api/layers/jobs/" + job.getId())).body(job.status());
+    }
+
+    // Copies the body into the file, false as soon as it turns out to be longer than maxBytes
+    private static boolean copy(InputStream body, Path file, long maxBytes) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            long total = 0;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    return false;
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return true;
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<IngestJob.Status>> getJobs() {
+        return ResponseEntity.ok(layerIngestService.jobs().stream().map(IngestJob::status).toList());
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestJob.Status> getJob(@PathVariable String jobId) {
+        return ResponseEntity.of(Optional.ofNullable(layerIngestService.job(jobId)).map(IngestJob::status));
+    }
+}
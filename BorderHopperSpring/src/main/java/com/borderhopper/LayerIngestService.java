@@ -0,0 +1,320 @@
+package com.borderhopper;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.geojson.GeoJsonWriter;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.opengis.referencing.operation.MathTransform;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.borderhopper.GeographicalUnit.GeographicalType;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Turns uploaded GeoJSON files into custom layers: reading and converting to WGS84, simplifying, finding the neighbours and
+// saving, like DbInitializer does for the built-in types. Jobs run on a small pool of low priority threads with a bounded
+// queue, so uploads are refused instead of piling up and never take request threads away from games. A finished layer is
+// added to GeographicalService and GeometryCache under its name, which is then used as the type in every other endpoint.
+// The parallel parts of building a type, finding the neighbours and the distance matrix, run on a ForkJoinPool of its own
+// rather than the common pool, so they can't take more than borderhopper.ingest.parallelism cores from the requests.
+@Service
+public class LayerIngestService {
+
+    private static final long FINISHED_JOB_TIMEOUT_MILLIS = 60 * 60 * 1000; // Finished jobs are kept an hour for their status
+    private static final Pattern LAYER_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    // Layer of the jobs that read the built-in types from the database again, not a valid name for a custom layer
+    public static final String DATABASE = "(database)";
+
+    @Autowired
+    private GeographicalService geographicalService;
+    @Autowired
+    private GeometryCache geometryCache;
+    @Autowired
+    private CustomLayerRepository customLayerRepository;
+    @Autowired
+    private LayerWriter layerWriter;
+    @Autowired
+    private Environment environment;
+    @Value("${borderhopper.ingest.workers:1}")
+    private int workers;
+    @Value("${borderhopper.ingest.queue-size:4}")
+    private int queueSize;
+    @Value("${borderhopper.ingest.max-units:50000}")
+    private int maxUnits;
+    @Value("${borderhopper.ingest.parallelism:2}")
+    private int parallelism;
+    @Value("${borderhopper.geometry.twkb-precision:5}")
+    private int twkbPrecision;
+
+    private ThreadPoolExecutor executor;
+    private ForkJoinPool computePool;
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "layer-ingest-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        // With virtual threads, jobs don't hold a platform thread while they wait for the file or the database. The number
+        // of workers still limits how many carrier threads ingest can keep busy with its CPU heavy parts.
+        if (Threading.VIRTUAL.isActive(environment)) {
+            threadFactory = new VirtualThreadTaskExecutor("layer-ingest-").getVirtualThreadFactory();
+        }
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), threadFactory);
+
+        // No threads beyond the parallelism, not even to make up for blocked ones
+        AtomicInteger computeThreadCount = new AtomicInteger();
+        computePool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("layer-compute-" + computeThreadCount.incrementAndGet());
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false, 0, parallelism, 1, pool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    private void stop() {
+        executor.shutdownNow();
+        computePool.shutdownNow();
+    }
+
+    // Runs the step on the compute pool and waits for it. Parallel streams started by a task of a ForkJoinPool fork into that
+    // pool, so everything the step does in parallel stays on its threads.
+    public <T> T compute(Supplier<T> step) {
+        if (ForkJoinTask.getPool() == computePool) {
+            return step.get();
+        }
+        return computePool.submit(step::get).join();
+    }
+
+    public void compute(Runnable step) {
+        compute(() -> {
+            step.run();
+            return null;
+        });
+    }
+
+    // Queues work nothing waits for behind the ingest jobs, like building the tile pyramid, and runs it on the compute pool.
+    // Throws RejectedExecutionException when the queue is full.
+    public void submitBackground(String name, Runnable step) {
+        executor.execute(() -> {
+            try {
+                compute(step);
+                System.out.println("Finished " + name);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Names of custom layers become type names, so they can't be one of the built-in types
+    public static boolean isValidLayerName(String layer) {
+        if (!LAYER_NAME.matcher(layer).matches()) {
+            return false;
+        }
+        for (GeographicalType type : GeographicalType.values()) {
+            if (type.name().equalsIgnoreCase(layer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Adds the custom layers saved earlier, in the background since the types from the database or a Snapshot come first
+    public void loadStoredLayers() {
+        executor.execute(() -> {
+            try {
+                for (String layer : customLayerRepository.findLayerNames()) {
+                    publish(layer, customLayerRepository.findByLayerName(layer));
+                    System.out.println("Loaded custom layer " + layer);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Queues the GeoJSON file for ingest and takes ownership of it. Throws RejectedExecutionException when the queue is full
+    // and IllegalStateException when the same layer is already being ingested.
+    public synchronized IngestJob submit(String layer, Path file, String nameProperty, double tolerance, String sourceCrs) {
+        return enqueue(layer, job -> ingest(job, file, nameProperty, tolerance, sourceCrs), () -> deleteQuietly(file));
+    }
+
+    // Queues reading the built-in types from the database again behind the layers, as a job of the DATABASE layer. Throws
+    // the same exceptions as submit, IllegalStateException when a reload is already waiting or running.
+    public synchronized IngestJob submitReload(Runnable reload) {
+        return enqueue(DATABASE, job -> {
+            try {
+                job.stage(IngestJob.Stage.Reading, -1);
+                reload.run();
+                job.done();
+                System.out.println("Finished reading the types from the database");
+            } catch (Exception e) {
+                e.printStackTrace();
+                job.fail(e.getMessage() == null ? e.toString() : e.getMessage());
+            }
+        }, () -> {});
+    }
+
+    private IngestJob enqueue(String layer, Consumer<IngestJob> work, Runnable rejected) {
+        removeExpired();
+        for (IngestJob job : jobs.values()) {
+            if (job.getLayer().equals(layer) && !job.isFinished()) {
+                rejected.run();
+                throw new IllegalStateException("Layer " + layer + " is already being ingested by job " + job.getId());
+            }
+        }
+        IngestJob job = new IngestJob(UUID.randomUUID().toString(), layer);
+        try {
+            executor.execute(() -> work.accept(job));
+        } catch (RejectedExecutionException e) {
+            rejected.run();
+            throw e;
+        }
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    // Whether the layer was published or saved before, stored layers are only published a while after the start
+    public boolean exists(String layer) {
+        return geographicalService.current().graphs().containsKey(layer) || customLayerRepository.existsByLayerName(layer);
+    }
+
+    public IngestJob job(String id) {
+        return jobs.get(id);
+    }
+
+    public List<IngestJob> jobs() {
+        List<IngestJob> all = new ArrayList<>(jobs.values());
+        all.sort(Comparator.comparing(IngestJob::getLayer));
+        return all;
+    }
+
+    private void ingest(IngestJob job, Path file, String nameProperty, double tolerance, String sourceCrs) {
+        String layer = job.getLayer();
+        try {
+            // GeoJSON is longitude first, whatever the reference system
+            MathTransform transform = null;
+            if (sourceCrs != null && !sourceCrs.isBlank() && !sourceCrs.equals("EPSG:4326")) {
+                transform = CRS.findMathTransform(CRS.decode(sourceCrs, true), CRS.decode("EPSG:4326", true), false);
+            }
+
+            job.stage(IngestJob.Stage.Reading, -1);
+            Map<String, Geometry> geometries = new LinkedHashMap<>();
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+                    GeoJsonFeatureReader reader = new GeoJsonFeatureReader(inputStream)) {
+                GeoJsonFeatureReader.Feature feature;
+                int count = 0;
+                while ((feature = reader.next()) != null) {
+                    Object name = feature.properties().get(nameProperty);
+                    if (name == null) {
+                        throw new IllegalArgumentException("Feature " + count + " has no '" + nameProperty + "' property");
+                    }
+                    if (feature.geometry() != null && !feature.geometry().isEmpty()) { // Units without a shape can't border anything
+                        geometries.put(name.toString().trim(), transform == null ? feature.geometry() : JTS.transform(feature.geometry(), transform));
+                        if (geometries.size() > maxUnits) {
+                            throw new IllegalArgumentException("The file has more than " + maxUnits + " units");
+                        }
+                    }
+                    job.progress(++count);
+                }
+            }
+            if (geometries.isEmpty()) {
+                throw new IllegalArgumentException("The file has no features with a geometry");
+            }
+
+            job.stage(IngestJob.Stage.Simplifying, geometries.size());
+            GeoJsonWriter writer = new GeoJsonWriter();
+            List<CustomLayerUnit> units = new ArrayList<>(geometries.size());
+            for (Map.Entry<String, Geometry> geometry : geometries.entrySet()) {
+                Geometry simplifiedGeometry = TopologyPreservingSimplifier.simplify(geometry.getValue(), tolerance);
+                CustomLayerUnit unit = new CustomLayerUnit();
+                unit.setLayerName(layer);
+                unit.setUnitName(geometry.getKey());
+                unit.setGeojson(writer.write(simplifiedGeometry));
+                unit.setTwkb(TwkbWriter.write(simplifiedGeometry, twkbPrecision));
+                unit.setConnectedUnitNames(new HashSet<>());
+                units.add(unit);
+                job.progress(units.size());
+            }
+
+            job.stage(IngestJob.Stage.Connecting, geometries.size());
+            Map<String, Set<String>> adjacency = compute(() -> AdjacencyBuilder.build(geometries, tolerance, Set.of()));
+            for (CustomLayerUnit unit : units) {
+                unit.getConnectedUnitNames().addAll(adjacency.get(unit.getUnitName()));
+            }
+
+            job.stage(IngestJob.Stage.Saving, units.size());
+            layerWriter.replace(layer, units);
+            publish(layer, units);
+            job.done();
+            System.out.println("Finished ingesting custom layer " + layer + " with " + units.size() + " units");
+        } catch (Exception e) {
+            e.printStackTrace();
+            job.fail(e.getMessage() == null ? e.toString() : e.getMessage());
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    // Units are sorted by name, so the unit ids stay the same as long as the units do
+    private void publish(String layer, List<CustomLayerUnit> units) {
+        units = new ArrayList<>(units);
+        units.sort(Comparator.comparing(CustomLayerUnit::getUnitName));
+        String[] unitNames = units.stream().map(CustomLayerUnit::getUnitName).toArray(String[]::new);
+        List<Set<String>> connectedUnitNames = units.stream().map(CustomLayerUnit::getConnectedUnitNames).toList();
+        geometryCache.addType(layer, units);
+        geographicalService.addType(layer, compute(() -> new GraphManager(layer, unitNames, connectedUnitNames)));
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isFinished() && now - job.getFinishedAt() > FINISHED_JOB_TIMEOUT_MILLIS);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
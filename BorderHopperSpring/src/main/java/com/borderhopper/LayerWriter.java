@@ -0,0 +1,57 @@
+package com.borderhopper;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Inserts a whole new layer in one transaction. Units are persisted directly, because saving them through the repository
+// merges them and so selects every unit before inserting it, and the session is flushed and cleared after every JDBC batch.
+@Component
+public class LayerWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private CustomLayerRepository customLayerRepository;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int batchSize;
+
+    @Transactional
+    public void write(List<GeographicalUnit> units) {
+        // A name that appears twice keeps its last unit, like saving both of them one after the other did
+        Map<String, GeographicalUnit> byName = new LinkedHashMap<>();
+        for (GeographicalUnit unit : units) {
+            byName.put(unit.getUnitName(), unit);
+        }
+        persist(byName.values());
+    }
+
+    // Swaps all units of a custom layer for new ones, so a failed upload leaves the previous version of the layer in place
+    @Transactional
+    public void replace(String layerName, List<CustomLayerUnit> units) {
+        customLayerRepository.deleteByLayerName(layerName);
+        entityManager.flush();
+        entityManager.clear();
+        persist(units);
+    }
+
+    private void persist(Collection<?> entities) {
+        int count = 0;
+        for (Object entity : entities) {
+            entityManager.persist(entity);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+}
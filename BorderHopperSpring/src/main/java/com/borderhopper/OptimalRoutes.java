@@ -0,0 +1,96 @@
+package com.borderhopper;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Every optimal route between two units: the units that lie on at least one of them, how many there are and the first one
+// in unit id order. Like optimalDistance, units and path only hold the units in between, without start and end.
+public record OptimalRoutes(int[] units, long pathCount, boolean pathCountSaturated, int[] path) {
+
+    // The same with unit names, as the endpoints that take names answer
+    public record Names(List<String> units, long pathCount, boolean pathCountSaturated, List<String> path) {
+    }
+
+    // The distances from start and from end are the forward and the backward search, rows of the distance matrix or two
+    // searches on graphs without one. A unit is on an optimal route when its distances to both add up to the optimal one,
+    // and the routes are counted layer by layer from start. Returns null when start and end are not connected.
+    public static OptimalRoutes of(GraphManager graph, int start, int end) {
+        int[] fromStart = graph.distancesFrom(start);
+        int optimal = fromStart[end];
+        if (optimal == -1) {
+            return null;
+        }
+        int[] toEnd = graph.distancesFrom(end);
+
+        // Units on an optimal route grouped by their distance from start, with the units in between listed in id order
+        int[] layerStart = new int[optimal + 2];
+        int onRoute = 0;
+        for (int unit = 0; unit < graph.size(); unit++) {
+            if (isOnRoute(fromStart, toEnd, optimal, unit)) {
+                layerStart[fromStart[unit] + 1]++;
+                onRoute++;
+            }
+        }
+        for (int layer = 0; layer <= optimal; layer++) {
+            layerStart[layer + 1] += layerStart[layer];
+        }
+        int[] layers = new int[onRoute];
+        int[] units = new int[Math.max(onRoute - 2, 0)];
+        int[] next = layerStart.clone();
+        int count = 0;
+        for (int unit = 0; unit < graph.size(); unit++) {
+            if (isOnRoute(fromStart, toEnd, optimal, unit)) {
+                layers[next[fromStart[unit]]++] = unit;
+                if (unit != start && unit != end) {
+                    units[count++] = unit;
+                }
+            }
+        }
+
+        // Routes to a unit are the sum of the routes to its neighbours one layer closer to start, capped at Long.MAX_VALUE
+        long[] routes = new long[graph.size()];
+        routes[start] = 1;
+        boolean saturated = false;
+        for (int layer = 1; layer <= optimal; layer++) {
+            for (int i = layerStart[layer]; i < layerStart[layer + 1]; i++) {
+                int unit = layers[i];
+                long sum = 0;
+                for (int e = graph.offsets[unit]; e < graph.offsets[unit + 1]; e++) {
+                    int neighbour = graph.targets[e];
+                    if (routes[neighbour] != 0 && fromStart[neighbour] == layer - 1) {
+                        if (sum > Long.MAX_VALUE - routes[neighbour]) {
+                            sum = Long.MAX_VALUE;
+                            saturated = true;
+                        }
+                        else {
+                            sum += routes[neighbour];
+                        }
+                    }
+                }
+                routes[unit] = sum;
+            }
+        }
+
+        // Always the neighbour with the lowest id one hop closer to end, like DistanceMatrix.nextHop
+        int[] path = new int[Math.max(optimal - 1, 0)];
+        int current = start;
+        for (int i = 0; i < path.length; i++) {
+            int e = graph.offsets[current];
+            while (toEnd[graph.targets[e]] != toEnd[current] - 1) {
+                e++;
+            }
+            current = graph.targets[e];
+            path[i] = current;
+        }
+        return new OptimalRoutes(units, routes[end], saturated, path);
+    }
+
+    private static boolean isOnRoute(int[] fromStart, int[] toEnd, int optimal, int unit) {
+        return fromStart[unit] != -1 && toEnd[unit] != -1 && fromStart[unit] + toEnd[unit] == optimal;
+    }
+
+    public Names names(GraphManager graph) {
+        return new Names(Arrays.stream(units).mapToObj(unit -> graph.unitNames[unit]).toList(), pathCount, pathCountSaturated,
+                Arrays.stream(path).mapToObj(unit -> graph.unitNames[unit]).toList());
+    }
+}
@@ -0,0 +1,106 @@
+package com.borderhopper;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Every pair of connected units of one graph, grouped by the number of units between them on an optimal path, so a puzzle
+// with any range of steps is one uniform pick from a contiguous slice. Pairs of different components and isolated units
+// have no distance and are never part of it.
+public class PuzzleIndex {
+
+    public enum Difficulty {
+        Easy,
+        Medium,
+        Hard
+    }
+
+    private final int size;
+    private final int[] pairs; // from * size + to with from < to, ordered by steps
+    private final int[] stepStart; // Pairs with s steps are pairs[stepStart[s]] .. pairs[stepStart[s + 1] - 1]
+    private final int[] difficultyStart; // Lowest number of steps of each difficulty, with the one past the last at the end
+
+    public PuzzleIndex(GraphManager graph) {
+        size = graph.size();
+        DistanceMatrix distances = graph.distances;
+
+        // Count the pairs of every length first, then place them, so the pairs need a single array
+        int maxSteps = -1;
+        int[] counts = new int[Math.max(size, 1)];
+        for (int from = 0; from < size; from++) {
+            for (int to = from + 1; to < size; to++) {
+                int steps = distances.distance(from, to) - 1;
+                if (steps >= 0) {
+                    counts[steps]++;
+                    maxSteps = Math.max(maxSteps, steps);
+                }
+            }
+        }
+        stepStart = new int[maxSteps + 2];
+        for (int steps = 0; steps <= maxSteps; steps++) {
+            stepStart[steps + 1] = stepStart[steps] + counts[steps];
+        }
+        pairs = new int[stepStart[maxSteps + 1]];
+        int[] next = stepStart.clone();
+        for (int from = 0; from < size; from++) {
+            for (int to = from + 1; to < size; to++) {
+                int steps = distances.distance(from, to) - 1;
+                if (steps >= 0) {
+                    pairs[next[steps]++] = from * size + to;
+                }
+            }
+        }
+
+        // Neighbours are no puzzle, the other pairs are split into thirds at the step count where each third is reached
+        difficultyStart = new int[Difficulty.values().length + 1];
+        int puzzles = pairs.length - count(0, 0);
+        int steps = 1;
+        for (int difficulty = 0; difficulty < Difficulty.values().length; difficulty++) {
+            difficultyStart[difficulty] = steps;
+            long target = (long) puzzles * (difficulty + 1) / Difficulty.values().length;
+            while (steps <= maxSteps && count(1, steps - 1) < target) {
+                steps++;
+            }
+        }
+        difficultyStart[Difficulty.values().length] = maxSteps + 1;
+    }
+
+    public int maxSteps() {
+        return stepStart.length - 2;
+    }
+
+    // Number of pairs with between minSteps and maxSteps units in between
+    public int count(int minSteps, int maxSteps) {
+        int min = Math.max(minSteps, 0);
+        int max = Math.min(maxSteps, maxSteps());
+        return min > max ? 0 : stepStart[max + 1] - stepStart[min];
+    }
+
+    // A random start and end with between minSteps and maxSteps units in between, null if there is no such pair
+    public int[] random(int minSteps, int maxSteps) {
+        int count = count(minSteps, maxSteps);
+        if (count == 0) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pair = pairs[stepStart[Math.max(minSteps, 0)] + random.nextInt(count)];
+        int from = pair / size;
+        int to = pair % size;
+        return random.nextBoolean() ? new int[] { from, to } : new int[] { to, from };
+    }
+
+    // Small graphs can leave a difficulty without puzzles, it then falls back to the nearest one that has some, the easier
+    // one first. Null only when the graph has no puzzles at all.
+    public int[] random(Difficulty difficulty) {
+        int difficulties = Difficulty.values().length;
+        for (int distance = 0; distance < difficulties; distance++) {
+            for (int band : new int[] { difficulty.ordinal() - distance, difficulty.ordinal() + distance }) {
+                if (band >= 0 && band < difficulties) {
+                    int[] puzzle = random(difficultyStart[band], difficultyStart[band + 1] - 1);
+                    if (puzzle != null) {
+                        return puzzle;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
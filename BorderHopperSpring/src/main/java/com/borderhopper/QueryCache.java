@@ -0,0 +1,74 @@
+package com.borderhopper;
+
+import java.time.Duration;
+import java.util.BitSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import jakarta.annotation.PostConstruct;
+
+// Answers of the stateless game queries of GeographicalService, shared by every request asking the same question: the same
+// graph, start and end and the same guessed units in whatever order they were sent. Entries are weighed by their rough size
+// in bytes and evicted with Caffeine's W-TinyLFU policy once the cache is full, and concurrent requests for a missing entry
+// wait for a single computation. The hits and misses are exported with the other metrics as the gameQueries cache.
+@Service
+public class QueryCache {
+
+    // Graphs compare by identity, so a reload or a new layer never answers from the old graph. The guessed units must not
+    // be changed once they are part of a key.
+    private record Key(GameMetrics.Query query, GraphManager graph, int start, int end, BitSet unitsGuessed) {
+    }
+
+    private static final Duration EXPIRE_AFTER_ACCESS = Duration.ofMinutes(10); // Lets go of graphs that were replaced
+    private static final int ENTRY_OVERHEAD = 128; // Key, node and boxed answer
+
+    @Autowired
+    private GeographicalService geographicalService;
+    @Value("${borderhopper.query-cache.max-bytes:16777216}")
+    private long maxBytes;
+
+    private Cache<Key, Object> cache;
+
+    @PostConstruct
+    private void start() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(QueryCache::weigh)
+                .expireAfterAccess(EXPIRE_AFTER_ACCESS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, "gameQueries");
+    }
+
+    public int getNextUnit(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+        return (Integer) cache.get(new Key(GameMetrics.Query.NextUnit, graph, start, end, unitsGuessed),
+                key -> geographicalService.getNextUnit(graph, start, end, unitsGuessed));
+    }
+
+    public Integer distanceRemaining(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+        return (Integer) cache.get(new Key(GameMetrics.Query.DistanceRemaining, graph, start, end, unitsGuessed),
+                key -> geographicalService.distanceRemaining(graph, start, end, unitsGuessed));
+    }
+
+    // Shared by every request that asks the same, so the array must not be changed
+    public int[] getConnected(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+        return (int[]) cache.get(new Key(GameMetrics.Query.Connected, graph, start, end, unitsGuessed),
+                key -> geographicalService.getConnected(graph, start, end, unitsGuessed));
+    }
+
+    private static int weigh(Key key, Object answer) {
+        int weight = ENTRY_OVERHEAD + (key.unitsGuessed().length() + 7) / 8;
+        if (answer instanceof int[] units) {
+            weight += Integer.BYTES * units.length;
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,196 @@
+package com.borderhopper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.borderhopper.GeographicalUnit.GeographicalType;
+
+// Everything the API serves from memory, written to one file after the database was read and read back on the next
+// start, so a node can serve without waiting for Postgres. The database stays the source of truth: a snapshot is only
+// rewritten from it, and one with another format version or from other types is ignored. Custom layers are not part of it,
+// LayerIngestService reads them from the database.
+//
+// Format, big endian: magic, version, type count, then per type its name, unit count, unit names, CSR offsets, target
+// count, targets, components, every unit's GeoJSON and TWKB entry and the whole type's GeoJSON and TWKB entry. Strings
+// and byte arrays are prefixed with their length, entries are content, gzip and ETag, or a single -1 when missing.
+@Component
+public class Snapshot {
+
+    private static final int MAGIC = 0x42485350; // "BHSP"
+    private static final int VERSION = 1;
+
+    @Autowired
+    private GeographicalService geographicalService;
+    @Autowired
+    private GeometryCache geometryCache;
+
+    @Value("${borderhopper.snapshot.path:}")
+    private String path;
+
+    // Fills GeographicalService and GeometryCache from the snapshot file, false if there is no usable one
+    public boolean load() {
+        if (path.isEmpty() || !Files.isRegularFile(Path.of(path))) {
+            return false;
+        }
+        // Everything ends up on the heap anyway, so the file is read in one pass like it was written
+        try (InputStream file = Files.newInputStream(Path.of(path));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != GeographicalType.values().length) {
+                System.out.println("Snapshot " + path + " has another format, ignoring it");
+                return false;
+            }
+            Map<String, GraphManager> graphs = new HashMap<>();
+            Map<String, Map<String, GeometryCache.Entry>> units = new HashMap<>();
+            Map<String, GeometryCache.Entry> layers = new HashMap<>();
+            Map<String, Map<String, GeometryCache.Entry>> twkbUnits = new HashMap<>();
+            Map<String, GeometryCache.Entry> twkbLayers = new HashMap<>();
+            for (int t = 0; t < GeographicalType.values().length; t++) {
+                String type = GeographicalType.valueOf(readString(in)).name();
+                int n = in.readInt();
+                String[] unitNames = new String[n];
+                for (int i = 0; i < n; i++) {
+                    unitNames[i] = readString(in);
+                }
+                int[] offsets = readInts(in, n + 1);
+                int[] targets = readInts(in, in.readInt());
+                int[] component = readInts(in, n);
+                graphs.put(type, new GraphManager(type, unitNames, offsets, targets, component));
+
+                Map<String, GeometryCache.Entry> typeUnits = new HashMap<>();
+                Map<String, GeometryCache.Entry> typeTwkbUnits = new HashMap<>();
+                for (int i = 0; i < n; i++) {
+                    putEntry(typeUnits, unitNames[i], readEntry(in));
+                    putEntry(typeTwkbUnits, unitNames[i], readEntry(in));
+                }
+                units.put(type, typeUnits);
+                twkbUnits.put(type, typeTwkbUnits);
+                layers.put(type, readEntry(in));
+                twkbLayers.put(type, readEntry(in));
+            }
+            geographicalService.init(graphs);
+            geometryCache.init(units, layers, twkbUnits, twkbLayers);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not read snapshot " + path + ", ignoring it: " + e);
+            return false;
+        }
+    }
+
+    // Writes what GeographicalService and GeometryCache currently hold, replacing the old file only once the new one is complete
+    public void save() {
+        if (path.isEmpty()) {
+            return;
+        }
+        Path target = Path.of(path).toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (OutputStream file = Files.newOutputStream(temporary);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(GeographicalType.values().length);
+                GeographicalService.Graphs graphs = geographicalService.current();
+                for (GeographicalType geographicalType : GeographicalType.values()) {
+                    String type = geographicalType.name();
+                    GraphManager graph = graphs.graph(type);
+                    writeString(out, type);
+                    out.writeInt(graph.size());
+                    for (String unitName : graph.unitNames) {
+                        writeString(out, unitName);
+                    }
+                    writeInts(out, graph.offsets);
+                    out.writeInt(graph.targets.length);
+                    writeInts(out, graph.targets);
+                    writeInts(out, graph.component);
+                    for (String unitName : graph.unitNames) {
+                        writeEntry(out, geometryCache.unit(type, unitName));
+                        writeEntry(out, geometryCache.twkbUnit(type, unitName));
+                    }
+                    writeEntry(out, geometryCache.layer(type));
+                    writeEntry(out, geometryCache.twkbLayer(type));
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Wrote snapshot " + target);
+        } catch (IOException e) {
+            System.out.println("Could not write snapshot " + target + ": " + e);
+        }
+    }
+
+    private static void putEntry(Map<String, GeometryCache.Entry> entries, String unitName, GeometryCache.Entry entry) {
+        if (entry != null) {
+            entries.put(unitName, entry);
+        }
+    }
+
+    private static GeometryCache.Entry readEntry(DataInputStream in) throws IOException {
+        byte[] content = readBytes(in);
+        if (content == null) {
+            return null;
+        }
+        return new GeometryCache.Entry(content, readBytes(in), readString(in));
+    }
+
+    private static void writeEntry(DataOutputStream out, GeometryCache.Entry entry) throws IOException {
+        if (entry == null) {
+            out.writeInt(-1);
+            return;
+        }
+        writeBytes(out, entry.content());
+        writeBytes(out, entry.gzip());
+        writeString(out, entry.eTag());
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.borderhopper;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.borderhopper.GeographicalUnit.GeographicalType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Unit names of one type, lowercased and normalized once, for autocomplete
+public class SuggestionIndex {
+
+    private static final long PREFIX_CACHE_BYTES = 2 << 20; // Per type, large layers keep fewer prefixes
+    private static final int ENTRY_OVERHEAD = 64; // Node, key and Candidates
+    private static final int MAX_SLACK = 16;
+    private static final int MAX_SKIPPED_LETTERS = (FuzzyScorer.DISTANCE_CUTOFF + MAX_SLACK) / FuzzyScorer.PENALTY_SKIP_LETTER;
+
+    // Units that scored under the cutoff plus slack for a search
+    private record Candidates(int[] units, int slack) {
+    }
+
+    private final String[] displayNames;
+    private final char[][] normalizedNames;
+    private final long[] letterMasks;
+    private final int[] allUnits;
+    private final GameMetrics.Suggestions metrics;
+
+    // Candidates of recent searches. Appending a letter lowers the score of a search by at most 1, since the name letters
+    // the new letter skips were scored 1 each as the tail before, so a unit that scores cutoff + k or more can't get under
+    // the cutoff within the next k letters. A search rescores the candidates of its longest cached prefix that has enough
+    // slack left, or all units with MAX_SLACK. Lookups and updates don't lock, the cache is shared by every request. Entries
+    // are weighed by their rough size in bytes, since short prefixes of a large layer keep most of its units.
+    private final Cache<String, Candidates> prefixCache = Caffeine.newBuilder()
+            .maximumWeight(PREFIX_CACHE_BYTES)
+            .weigher((String prefix, Candidates candidates) -> ENTRY_OVERHEAD + 2 * prefix.length() + Integer.BYTES * candidates.units().length)
+            .build();
+
+    public SuggestionIndex(String type, String[] unitNames) {
+        int n = unitNames.length;
+        displayNames = new String[n];
+        normalizedNames = new char[n][];
+        letterMasks = new long[n];
+        allUnits = new int[n];
+        for (int i = 0; i < n; i++) {
+            String unitName = unitNames[i];
+            if (type.equals(GeographicalType.CountryUnfiltered.name())) {
+                unitName = unitName.replace("Unfiltered", "");
+            }
+            displayNames[i] = unitName;
+            normalizedNames[i] = normalize(unitName).toCharArray();
+            for (char c : normalizedNames[i]) {
+                letterMasks[i] |= letterBit(c);
+            }
+            allUnits[i] = i;
+        }
+        metrics = GameMetrics.suggestions(type);
+    }
+
+    public static String normalize(String name) {
+        return Normalizer.normalize(name.toLowerCase(), Normalizer.Form.NFD);
+    }
+
+    public List<String> similarNames(String searchString, int topN) {
+        SuggestionSearchEvent event = new SuggestionSearchEvent();
+        event.begin();
+        String normalizedSearch = normalize(searchString);
+        char[] search = normalizedSearch.toCharArray();
+
+        int[] candidates = allUnits;
+        int slack = MAX_SLACK;
+        for (int length = search.length; length > 0; length--) {
+            Candidates cached = prefixCache.getIfPresent(normalizedSearch.substring(0, length));
+            if (cached != null && cached.slack() >= search.length - length) {
+                candidates = cached.units();
+                slack = cached.slack() - (search.length - length);
+                break;
+            }
+        }
+        int cutoff = FuzzyScorer.DISTANCE_CUTOFF + slack;
+
+        // Bounded max-heap of (score << 32 | unit), so ties keep the unit order like a stable sort would
+        long[] heap = new long[Math.max(topN, 0)];
+        int heapSize = 0;
+        int[] survivors = new int[candidates.length];
+        int survivorCount = 0;
+        int scored = 0;
+        for (int unit : candidates) {
+            if (missingLetters(search, letterMasks[unit]) > MAX_SKIPPED_LETTERS) {
+                continue;
+            }
+            scored++;
+            int distance = FuzzyScorer.score(search, normalizedNames[unit], cutoff);
+            if (distance == -1) {
+                continue;
+            }
+            survivors[survivorCount++] = unit;
+            if (distance >= FuzzyScorer.DISTANCE_CUTOFF) {
+                continue;
+            }
+            long entry = ((long) distance << 32) | unit;
+            if (heapSize < heap.length) {
+                heap[heapSize] = entry;
+                siftUp(heap, heapSize++);
+            }
+            else if (heapSize > 0 && entry < heap[0]) {
+                heap[0] = entry;
+                siftDown(heap, heapSize);
+            }
+        }
+        prefixCache.put(normalizedSearch, new Candidates(Arrays.copyOf(survivors, survivorCount), slack));
+
+        long[] best = Arrays.copyOf(heap, heapSize);
+        Arrays.sort(best);
+        List<String> results = new ArrayList<>(best.length);
+        for (long entry : best) {
+            results.add(displayNames[(int) entry]);
+        }
+        metrics.record(event, search.length, candidates.length, scored, results.size());
+        return results;
+    }
+
+    // Letters of the search that do not appear anywhere in the name, each of them has to be skipped
+    private static int missingLetters(char[] search, long letterMask) {
+        int missing = 0;
+        for (char c : search) {
+            if ((letterMask & letterBit(c)) == 0) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    // Different letters may share a bit, which only makes the filter let more names through
+    private static long letterBit(char c) {
+        return 1L << (c & 63);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent] >= heap[index]) {
+                return;
+            }
+            long swap = heap[parent];
+            heap[parent] = heap[index];
+            heap[index] = swap;
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1, right = left + 1;
+            if (left < size && heap[left] > heap[largest]) {
+                largest = left;
+            }
+            if (right < size && heap[right] > heap[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            long swap = heap[largest];
+            heap[largest] = heap[index];
+            heap[index] = swap;
+            index = largest;
+        }
+    }
+}
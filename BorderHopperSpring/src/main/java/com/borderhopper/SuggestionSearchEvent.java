@@ -0,0 +1,34 @@
+package com.borderhopper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One SuggestionIndex.similarNames call
+@Name("com.borderhopper.SuggestionSearch")
+@Label("Suggestion Search")
+@Category("BorderHopper")
+@Description("Scoring the unit names of one type against what was typed")
+@StackTrace(false)
+public class SuggestionSearchEvent extends Event {
+
+    @Label("Type")
+    public String type;
+
+    @Label("Search Length")
+    public int searchLength;
+
+    @Label("Candidates")
+    @Description("Units left to check, all of them unless a prefix of the search was cached")
+    public int candidates;
+
+    @Label("Scored")
+    @Description("Candidates the letter filter didn't rule out")
+    public int scored;
+
+    @Label("Results")
+    public int results;
+}
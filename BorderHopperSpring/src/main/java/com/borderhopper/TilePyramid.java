@@ -0,0 +1,192 @@
+package com.borderhopper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.geojson.GeoJsonReader;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.borderhopper.GeographicalUnit.GeographicalType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+// Every type's geometries in Web Mercator, simplified once per zoom level, cut into Mapbox Vector Tiles on request. Tiles
+// are cached up to a number of bytes, and concurrent requests for a missing tile wait for a single encoding.
+@Component
+public class TilePyramid {
+
+    public static final int MAX_ZOOM = 12; // Deeper tiles are cut from the zoom 12 geometries
+    private static final double MAX_LATITUDE = 85.0511287798;
+    private static final double SIMPLIFY_TILE_UNITS = 8; // Half a pixel of a 256 pixel tile
+    private static final double CLIP_BUFFER_TILE_UNITS = 64; // So outlines don't show seams at tile edges
+    private static final int ENTRY_OVERHEAD = 128; // Key, node, entry and ETag
+
+    private record Feature(int id, String name, Geometry geometry) {
+    }
+
+    @Autowired
+    private GeometryCache geometryCache;
+    @Value("${borderhopper.tiles.cache-max-bytes:67108864}")
+    private long cacheMaxBytes;
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private volatile Map<GeographicalType, STRtree[]> levels;
+    private Cache<String, GeometryCache.Entry> tiles;
+
+    @PostConstruct
+    private void start() {
+        tiles = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String key, GeometryCache.Entry tile) -> ENTRY_OVERHEAD + tile.content().length + tile.gzip().length)
+                .build();
+    }
+
+    // Simplifying every zoom level takes a while, so it is queued on the ingest instead of holding up the start or initDb.
+    // Tiles are unavailable until the first one is done.
+    public void init() {
+        Map<GeographicalType, STRtree[]> newLevels = new EnumMap<>(GeographicalType.class);
+        GeoJsonReader reader = new GeoJsonReader();
+        for (GeographicalType type : GeographicalType.values()) {
+            STRtree[] trees = new STRtree[MAX_ZOOM + 1];
+            for (int z = 0; z <= MAX_ZOOM; z++) {
+                trees[z] = new STRtree();
+            }
+            int id = 0;
+            for (Map.Entry<String, GeometryCache.Entry> unit : geometryCache.units(type.name()).entrySet()) {
+                Geometry mercator;
+                try {
+                    mercator = toMercator(reader.read(new String(unit.getValue().content(), StandardCharsets.UTF_8)));
+                } catch (ParseException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+                Geometry previous = null;
+                for (int z = 0; z <= MAX_ZOOM; z++) {
+                    Geometry simplified = mercator;
+                    // Once simplifying stops removing points, every deeper zoom can share the full geometry
+                    if (previous != mercator) {
+                        double tolerance = SIMPLIFY_TILE_UNITS / VectorTileEncoder.EXTENT / (1 << z);
+                        simplified = TopologyPreservingSimplifier.simplify(mercator, tolerance);
+                        if (simplified.getNumPoints() == mercator.getNumPoints()) {
+                            simplified = mercator;
+                        }
+                    }
+                    if (!simplified.isEmpty()) {
+                        trees[z].insert(simplified.getEnvelopeInternal(), new Feature(id, unit.getKey(), simplified));
+                    }
+                    previous = simplified;
+                }
+                id++;
+            }
+            for (STRtree tree : trees) {
+                tree.build();
+            }
+            newLevels.put(type, trees);
+        }
+        levels = newLevels;
+        tiles.invalidateAll();
+    }
+
+    public boolean isReady() {
+        return levels != null;
+    }
+
+    public static boolean isValidTile(int z, int x, int y) {
+        return z >= 0 && z <= 24 && x >= 0 && y >= 0 && x < (1 << z) && y < (1 << z);
+    }
+
+    public GeometryCache.Entry tile(GeographicalType type, int z, int x, int y) {
+        return tiles.get(type + "/" + z + "/" + x + "/" + y, key -> GeometryCache.entry(encodeTile(type, z, x, y)));
+    }
+
+    private byte[] encodeTile(GeographicalType type, int z, int x, int y) {
+        double scale = 1 << z;
+        double buffer = CLIP_BUFFER_TILE_UNITS / VectorTileEncoder.EXTENT / scale;
+        Envelope clipEnvelope = new Envelope(x / scale - buffer, (x + 1) / scale + buffer, y / scale - buffer, (y + 1) / scale + buffer);
+        Geometry clip = geometryFactory.toGeometry(clipEnvelope);
+
+        STRtree tree = levels.get(type)[Math.min(z, MAX_ZOOM)];
+        List<Feature> candidates = new ArrayList<>();
+        for (Object candidate : tree.query(clipEnvelope)) {
+            candidates.add((Feature) candidate);
+        }
+        candidates.sort((a, b) -> Integer.compare(a.id(), b.id()));
+
+        VectorTileEncoder encoder = new VectorTileEncoder(type.name());
+        for (Feature feature : candidates) {
+            Geometry clipped;
+            if (clipEnvelope.contains(feature.geometry().getEnvelopeInternal())) {
+                clipped = feature.geometry();
+            }
+            else {
+                try {
+                    clipped = feature.geometry().intersection(clip);
+                } catch (RuntimeException e) {
+                    clipped = feature.geometry().buffer(0).intersection(clip); // Repairs invalid geometries
+                }
+            }
+            if (clipped.isEmpty()) {
+                continue;
+            }
+            Geometry tileGeometry = clipped.copy();
+            tileGeometry.apply(new CoordinateSequenceFilter() {
+                @Override
+                public void filter(CoordinateSequence sequence, int i) {
+                    sequence.setOrdinate(i, 0, (sequence.getX(i) * scale - x) * VectorTileEncoder.EXTENT);
+                    sequence.setOrdinate(i, 1, (sequence.getY(i) * scale - y) * VectorTileEncoder.EXTENT);
+                }
+
+                @Override
+                public boolean isDone() {
+                    return false;
+                }
+
+                @Override
+                public boolean isGeometryChanged() {
+                    return true;
+                }
+            });
+            encoder.addFeature(feature.id(), feature.name(), tileGeometry);
+        }
+        return encoder.encode();
+    }
+
+    // Longitude/latitude to Web Mercator scaled to 0..1, with y pointing down
+    private static Geometry toMercator(Geometry geometry) {
+        Geometry mercator = geometry.copy();
+        mercator.apply(new CoordinateSequenceFilter() {
+            @Override
+            public void filter(CoordinateSequence sequence, int i) {
+                double latitude = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, sequence.getY(i))));
+                sequence.setOrdinate(i, 0, (sequence.getX(i) + 180) / 360);
+                sequence.setOrdinate(i, 1, (1 - Math.log(Math.tan(latitude) + 1 / Math.cos(latitude)) / Math.PI) / 2);
+            }
+
+            @Override
+            public boolean isDone() {
+                return false;
+            }
+
+            @Override
+            public boolean isGeometryChanged() {
+                return true;
+            }
+        });
+        return mercator;
+    }
+}
@@ -0,0 +1,7 @@
+package com.borderhopper;
+
+import java.util.List;
+
+// TurnResult with unit ids instead of names, nextUnit is -1 when there is no hint
+public record TurnIdsResult(int previousDistance, int distanceRemaining, int delta, List<Integer> connected, int nextUnit) {
+}
@@ -0,0 +1,6 @@
+package com.borderhopper;
+
+import java.util.List;
+
+public record TurnResult(int previousDistance, int distanceRemaining, int delta, List<String> connected, String nextUnit) {
+}
@@ -0,0 +1,153 @@
+package com.borderhopper;
+
+import java.io.ByteArrayOutputStream;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+// Writes 2D geometries as Tiny Well-known Binary: coordinates rounded to 10^-precision degrees and stored as zigzag
+// varint deltas from the previous point, which carries over between rings and parts. No bounding boxes, sizes or ids.
+public class TwkbWriter {
+
+    private static final int TYPE_POINT = 1;
+    private static final int TYPE_LINE_STRING = 2;
+    private static final int TYPE_POLYGON = 3;
+    private static final int TYPE_MULTI_POINT = 4;
+    private static final int TYPE_MULTI_LINE_STRING = 5;
+    private static final int TYPE_MULTI_POLYGON = 6;
+    private static final int TYPE_GEOMETRY_COLLECTION = 7;
+    private static final int FLAG_EMPTY = 0x10;
+
+    private final int precision;
+    private final double scale;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private long lastX, lastY;
+
+    private TwkbWriter(int precision) {
+        if (precision < -7 || precision > 7) {
+            throw new IllegalArgumentException("TWKB precision has to be between -7 and 7, got " + precision);
+        }
+        this.precision = precision;
+        this.scale = Math.pow(10, precision);
+    }
+
+    public static byte[] write(Geometry geometry, int precision) {
+        TwkbWriter writer = new TwkbWriter(precision);
+        writer.writeGeometry(geometry);
+        return writer.out.toByteArray();
+    }
+
+    private void writeGeometry(Geometry geometry) {
+        lastX = 0;
+        lastY = 0;
+        out.write(type(geometry) | (int) (zigZag(precision) << 4));
+        out.write(geometry.isEmpty() ? FLAG_EMPTY : 0);
+        if (geometry.isEmpty()) {
+            return;
+        }
+        if (geometry instanceof Point point) {
+            writePoints(point.getCoordinateSequence(), false);
+        }
+        else if (geometry instanceof LineString line) {
+            writePoints(line.getCoordinateSequence(), true);
+        }
+        else if (geometry instanceof Polygon polygon) {
+            writePolygon(polygon);
+        }
+        else if (geometry instanceof MultiPoint) {
+            writeVarint(geometry.getNumGeometries());
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                writePoints(((Point) geometry.getGeometryN(i)).getCoordinateSequence(), false);
+            }
+        }
+        else if (geometry instanceof MultiLineString) {
+            writeVarint(geometry.getNumGeometries());
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                writePoints(((LineString) geometry.getGeometryN(i)).getCoordinateSequence(), true);
+            }
+        }
+        else if (geometry instanceof MultiPolygon) {
+            writeVarint(geometry.getNumGeometries());
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                writePolygon((Polygon) geometry.getGeometryN(i));
+            }
+        }
+        else {
+            // Every member of a collection is a complete TWKB geometry with its own header
+            writeVarint(geometry.getNumGeometries());
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                writeGeometry(geometry.getGeometryN(i));
+            }
+        }
+    }
+
+    private void writePolygon(Polygon polygon) {
+        if (polygon.isEmpty()) {
+            writeVarint(0);
+            return;
+        }
+        writeVarint(1 + polygon.getNumInteriorRing());
+        writePoints(polygon.getExteriorRing().getCoordinateSequence(), true);
+        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+            writePoints(polygon.getInteriorRingN(i).getCoordinateSequence(), true);
+        }
+    }
+
+    private void writePoints(CoordinateSequence sequence, boolean withCount) {
+        if (withCount) {
+            writeVarint(sequence.size());
+        }
+        for (int i = 0; i < sequence.size(); i++) {
+            long x = Math.round(sequence.getX(i) * scale);
+            long y = Math.round(sequence.getY(i) * scale);
+            writeVarint(zigZag(x - lastX));
+            writeVarint(zigZag(y - lastY));
+            lastX = x;
+            lastY = y;
+        }
+    }
+
+    private static int type(Geometry geometry) {
+        if (geometry instanceof Point) {
+            return TYPE_POINT;
+        }
+        if (geometry instanceof LineString) {
+            return TYPE_LINE_STRING;
+        }
+        if (geometry instanceof Polygon) {
+            return TYPE_POLYGON;
+        }
+        if (geometry instanceof MultiPoint) {
+            return TYPE_MULTI_POINT;
+        }
+        if (geometry instanceof MultiLineString) {
+            return TYPE_MULTI_LINE_STRING;
+        }
+        if (geometry instanceof MultiPolygon) {
+            return TYPE_MULTI_POLYGON;
+        }
+        if (geometry instanceof GeometryCollection) {
+            return TYPE_GEOMETRY_COLLECTION;
+        }
+        throw new IllegalArgumentException("Unsupported geometry type " + geometry.getGeometryType());
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
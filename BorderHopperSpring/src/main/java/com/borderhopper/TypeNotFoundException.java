@@ -0,0 +1,10 @@
+package com.borderhopper;
+
+public class TypeNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TypeNotFoundException(String type) {
+        super("Type not found: " + type);
+    }
+}
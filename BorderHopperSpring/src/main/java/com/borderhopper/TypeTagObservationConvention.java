@@ -0,0 +1,47 @@
+package com.borderhopper;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletRequest;
+
+// Adds the type a request is for to the http.server.requests timers, from the type parameter, the type in the path of
+// the tiles, or the game of the game session endpoints. Only types that exist are used as tag values, so made up ones can't
+// add new time series.
+@Component
+public class TypeTagObservationConvention extends DefaultServerRequestObservationConvention {
+
+    private static final String NONE = "none";
+
+    @Autowired
+    private GeographicalService geographicalService;
+    @Autowired
+    private GameSessionService gameSessionService;
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and(KeyValue.of("type", type(context.getCarrier())));
+    }
+
+    private String type(HttpServletRequest request) {
+        String type = request.getParameter("type");
+        Object attribute = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (attribute instanceof Map<?, ?> pathVariables) {
+            if (type == null && pathVariables.get("type") instanceof String pathType) {
+                type = pathType;
+            }
+            if (type == null && pathVariables.get("gameId") instanceof String gameId) {
+                GameSession session = gameSessionService.peek(gameId);
+                type = session == null ? null : session.getType();
+            }
+        }
+        return type != null && geographicalService.current().graphs().containsKey(type) ? type : NONE;
+    }
+}
@@ -0,0 +1,10 @@
+package com.borderhopper;
+
+public class UnitIdsChangedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UnitIdsChangedException(String type, String idsVersion) {
+        super("Unit ids of " + type + " changed, they are at version " + idsVersion + " now");
+    }
+}
@@ -0,0 +1,14 @@
+package com.borderhopper;
+
+public class UnitNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UnitNotFoundException(String unitName) {
+        super("Unit not found: " + unitName);
+    }
+
+    public UnitNotFoundException(int unitId) {
+        super("Unit id not found: " + unitId);
+    }
+}
@@ -0,0 +1,167 @@
+package com.borderhopper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+
+// Writes a single layer Mapbox Vector Tile (spec version 2) with polygon features that carry a "name" tag.
+// Geometries have to be in tile coordinates already, 0..EXTENT with y pointing down.
+public class VectorTileEncoder {
+
+    public static final int EXTENT = 4096;
+
+    private static final int COMMAND_MOVE_TO = 1;
+    private static final int COMMAND_LINE_TO = 2;
+    private static final int COMMAND_CLOSE_PATH = 7;
+    private static final int GEOMETRY_TYPE_POLYGON = 3;
+
+    private final String layerName;
+    private final List<byte[]> features = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    public VectorTileEncoder(String layerName) {
+        this.layerName = layerName;
+    }
+
+    public void addFeature(long id, String name, Geometry geometry) {
+        List<Integer> commands = new ArrayList<>();
+        int[] cursor = new int[2];
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            if (geometry.getGeometryN(i) instanceof Polygon polygon) {
+                addRing(commands, cursor, polygon.getExteriorRing(), true);
+                for (int h = 0; h < polygon.getNumInteriorRing(); h++) {
+                    addRing(commands, cursor, polygon.getInteriorRingN(h), false);
+                }
+            }
+        }
+        if (commands.isEmpty()) {
+            return;
+        }
+
+        ProtoWriter feature = new ProtoWriter();
+        feature.writeVarintField(1, id);
+        feature.writePackedField(2, List.of(0, names.size())); // Key "name", value index of this feature's name
+        feature.writeVarintField(3, GEOMETRY_TYPE_POLYGON);
+        feature.writePackedField(4, commands);
+        features.add(feature.toByteArray());
+        names.add(name);
+    }
+
+    public byte[] encode() {
+        ProtoWriter tile = new ProtoWriter();
+        if (features.isEmpty()) {
+            return tile.toByteArray();
+        }
+        ProtoWriter layer = new ProtoWriter();
+        layer.writeVarintField(15, 2);
+        layer.writeBytesField(1, layerName.getBytes(StandardCharsets.UTF_8));
+        for (byte[] feature : features) {
+            layer.writeBytesField(2, feature);
+        }
+        layer.writeBytesField(3, "name".getBytes(StandardCharsets.UTF_8));
+        for (String name : names) {
+            ProtoWriter value = new ProtoWriter();
+            value.writeBytesField(1, name.getBytes(StandardCharsets.UTF_8));
+            layer.writeBytesField(4, value.toByteArray());
+        }
+        layer.writeVarintField(5, EXTENT);
+        tile.writeBytesField(3, layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    // Exterior rings need a positive area in tile coordinates and holes a negative one
+    private static void addRing(List<Integer> commands, int[] cursor, LineString ring, boolean exterior) {
+        Coordinate[] coordinates = ring.getCoordinates();
+        List<int[]> points = new ArrayList<>(coordinates.length);
+        for (int i = 0; i < coordinates.length - 1; i++) { // The last coordinate repeats the first one
+            int x = (int) Math.round(coordinates[i].x);
+            int y = (int) Math.round(coordinates[i].y);
+            int[] previous = points.isEmpty() ? null : points.get(points.size() - 1);
+            if (previous == null || previous[0] != x || previous[1] != y) {
+                points.add(new int[] { x, y });
+            }
+        }
+        while (points.size() > 1 && points.get(0)[0] == points.get(points.size() - 1)[0] && points.get(0)[1] == points.get(points.size() - 1)[1]) {
+            points.remove(points.size() - 1);
+        }
+        if (points.size() < 3) {
+            return;
+        }
+        long area = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int[] a = points.get(i), b = points.get((i + 1) % points.size());
+            area += (long) a[0] * b[1] - (long) b[0] * a[1];
+        }
+        if (area == 0) {
+            return;
+        }
+        if ((area > 0) != exterior) {
+            Collections.reverse(points);
+        }
+
+        commands.add(command(COMMAND_MOVE_TO, 1));
+        addPoint(commands, cursor, points.get(0));
+        commands.add(command(COMMAND_LINE_TO, points.size() - 1));
+        for (int i = 1; i < points.size(); i++) {
+            addPoint(commands, cursor, points.get(i));
+        }
+        commands.add(command(COMMAND_CLOSE_PATH, 1));
+    }
+
+    private static void addPoint(List<Integer> commands, int[] cursor, int[] point) {
+        commands.add(zigZag(point[0] - cursor[0]));
+        commands.add(zigZag(point[1] - cursor[1]));
+        cursor[0] = point[0];
+        cursor[1] = point[1];
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static class ProtoWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void writeVarintField(int field, long value) {
+            writeVarint((long) field << 3);
+            writeVarint(value);
+        }
+
+        void writeBytesField(int field, byte[] bytes) {
+            writeVarint(((long) field << 3) | 2);
+            writeVarint(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        void writePackedField(int field, List<Integer> values) {
+            ProtoWriter packed = new ProtoWriter();
+            for (int value : values) {
+                packed.writeVarint(value & 0xFFFFFFFFL);
+            }
+            writeBytesField(field, packed.toByteArray());
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
@@ -16,7 +16,8 @@ public class WebConfig {
                 registry.addMapping("/**")
                     .allowedOrigins("http://localhost:8080") // Allow connection from Vue.js
                     .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                    .allowedHeaders("*");
+                    .allowedHeaders("*")
+                    .exposedHeaders(GeographicalController.GRAPH_VERSION);
             }
         };
     }
@@ -0,0 +1,148 @@
+package com.borderhopper;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// 0-1 BFS over a GraphManager where entering a guessed unit costs 0 and any other unit costs 1.
+// Instances are pooled and reused, the arrays are invalidated by bumping the epoch instead of clearing them. A pool rather
+// than one instance per thread, because with virtual threads every request runs on a thread of its own.
+public class ZeroOneBfs {
+
+    private static final Queue<ZeroOneBfs> pool = new ConcurrentLinkedQueue<>();
+
+    private int[] stamp = new int[0];
+    private int[] distance = new int[0];
+    private int[] parent = new int[0];
+    private int[] deque = new int[1];
+    private int mask = 0;
+    private int head;
+    private int tail;
+    private int epoch;
+    private int visitedCount;
+
+    // Every acquired instance has to be given back with release once its results were read
+    public static ZeroOneBfs acquire() {
+        ZeroOneBfs bfs = pool.poll();
+        return bfs != null ? bfs : new ZeroOneBfs();
+    }
+
+    public void release() {
+        pool.offer(this);
+    }
+
+    // Searches from end until start is reached (pass -1 to visit the whole component) and returns the distance of start
+    public int run(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+        reset(graph.size());
+        visit(end, 0, end);
+        pushBack(end);
+        while (head != tail) {
+            int front = popFront();
+            int frontDist = distance[front];
+            for (int e = graph.offsets[front]; e < graph.offsets[front + 1]; e++) {
+                int neighbour = graph.targets[e];
+                if (stamp[neighbour] == epoch) {
+                    continue;
+                }
+                if (unitsGuessed.get(neighbour)) {
+                    visit(neighbour, frontDist, front);
+                    pushFront(neighbour);
+                }
+                else {
+                    visit(neighbour, frontDist + 1, front);
+                    pushBack(neighbour);
+                }
+                if (neighbour == start) {
+                    return distance[start];
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Guessed units that are connected to start or end through guessed units, in the order they were reached. A plain
+    // BFS on the same scratch arrays, so the results of the last run are gone afterwards. Every unit is pushed once and
+    // never wraps around the ring, so the units reached are still in the ring in order once it is done.
+    public int[] connected(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+        reset(graph.size());
+        visit(end, 0, end);
+        pushBack(end);
+        if (start != end) {
+            visit(start, 0, start);
+            pushBack(start);
+        }
+        int first = tail;
+        while (head != tail) {
+            int front = popFront();
+            for (int e = graph.offsets[front]; e < graph.offsets[front + 1]; e++) {
+                int neighbour = graph.targets[e];
+                if (stamp[neighbour] != epoch && unitsGuessed.get(neighbour)) {
+                    visit(neighbour, 0, front);
+                    pushBack(neighbour);
+                }
+            }
+        }
+        return Arrays.copyOfRange(deque, first, tail);
+    }
+
+    // Units visited by the last run
+    public int visitedCount() {
+        return visitedCount;
+    }
+
+    public boolean visited(int unit) {
+        return stamp[unit] == epoch;
+    }
+
+    // Only valid for units visited by the last run
+    public int distance(int unit) {
+        return distance[unit];
+    }
+
+    // Next unit on the shortest path towards end, only valid for units visited by the last run
+    public int parent(int unit) {
+        return parent[unit];
+    }
+
+    private void reset(int size) {
+        if (stamp.length < size) {
+            stamp = new int[size];
+            distance = new int[size];
+            parent = new int[size];
+            // Every unit is pushed at most once, so the ring never holds more than size entries
+            deque = new int[Integer.highestOneBit(Math.max(size, 1)) << 1];
+            mask = deque.length - 1;
+        }
+        if (++epoch == 0) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        head = 0;
+        tail = 0;
+        visitedCount = 0;
+    }
+
+    private void visit(int unit, int dist, int from) {
+        stamp[unit] = epoch;
+        visitedCount++;
+        distance[unit] = dist;
+        parent[unit] = from;
+    }
+
+    private void pushFront(int unit) {
+        head = (head - 1) & mask;
+        deque[head] = unit;
+    }
+
+    private void pushBack(int unit) {
+        deque[tail] = unit;
+        tail = (tail + 1) & mask;
+    }
+
+    private int popFront() {
+        int unit = deque[head];
+        head = (head + 1) & mask;
+        return unit;
+    }
+}
@@ -0,0 +1,99 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+class AdjacencyBuilderTest {
+
+	private static final double TOLERANCE = 0.1; // Units within 0.2 of each other are neighbours
+
+	// A and B share an edge, C is 0.15 right of B, D is 0.3 right of C, E only touches A in its corner, F overlaps A but
+	// the pair is forbidden and nothing else is in reach, G is an island
+	@Test
+	void matchesBufferAndIntersect() throws ParseException {
+		Map<String, Geometry> geometries = new LinkedHashMap<>();
+		geometries.put("A", square(0, 0));
+		geometries.put("B", square(1, 0));
+		geometries.put("C", square(2.15, 0));
+		geometries.put("D", square(3.45, 0));
+		geometries.put("E", square(-1, -1));
+		geometries.put("F", square(-0.5, 0.5));
+		geometries.put("G", square(10, 10));
+		Set<String> forbiddenPairs = Set.of("F-A");
+
+		Map<String, Set<String>> adjacency = AdjacencyBuilder.build(geometries, TOLERANCE, forbiddenPairs);
+		assertEquals(Set.of("B", "E"), adjacency.get("A"));
+		assertEquals(Set.of("A", "C"), adjacency.get("B"));
+		assertEquals(Set.of("B"), adjacency.get("C"));
+		assertEquals(Set.of(), adjacency.get("D"));
+		assertEquals(Set.of("A"), adjacency.get("E"));
+		assertEquals(Set.of(), adjacency.get("F"));
+		assertEquals(Set.of(), adjacency.get("G"));
+		assertEquals(bufferAndIntersect(geometries, TOLERANCE, forbiddenPairs), adjacency);
+	}
+
+	// Forbidden pairs are given one way round and apply both ways
+	@Test
+	void forbiddenPairsApplyBothWays() throws ParseException {
+		Map<String, Geometry> geometries = new LinkedHashMap<>();
+		geometries.put("A", square(0, 0));
+		geometries.put("B", square(1, 0));
+		geometries.put("C", square(0, 1));
+		for (Set<String> forbiddenPairs : Set.of(Set.of("A-B"), Set.of("B-A"))) {
+			Map<String, Set<String>> adjacency = AdjacencyBuilder.build(geometries, TOLERANCE, forbiddenPairs);
+			assertEquals(Set.of("C"), adjacency.get("A"));
+			assertEquals(Set.of("C"), adjacency.get("B"));
+			assertEquals(Set.of("A", "B"), adjacency.get("C"));
+			assertEquals(bufferAndIntersect(geometries, TOLERANCE, forbiddenPairs), adjacency);
+		}
+	}
+
+	// Multi polygons and gaps on a diagonal, where only the distance between the closest corners counts
+	@Test
+	void multiPolygonsAndDiagonalGaps() throws ParseException {
+		WKTReader reader = new WKTReader();
+		Map<String, Geometry> geometries = new LinkedHashMap<>();
+		geometries.put("Islands", reader.read("MULTIPOLYGON (((0 0, 1 0, 1 1, 0 1, 0 0)), ((5 0, 6 0, 6 1, 5 1, 5 0)))"));
+		geometries.put("NearSecondIsland", square(6.1, 0));
+		geometries.put("DiagonalNear", square(1.1, 1.1)); // 0.14 from the corner of the first island
+		geometries.put("DiagonalFar", square(-1.2, -1.2)); // 0.28 from the other corner
+		Map<String, Set<String>> adjacency = AdjacencyBuilder.build(geometries, TOLERANCE, Set.of());
+		assertEquals(Set.of("NearSecondIsland", "DiagonalNear"), adjacency.get("Islands"));
+		assertEquals(Set.of(), adjacency.get("DiagonalFar"));
+		assertEquals(bufferAndIntersect(geometries, TOLERANCE, Set.of()), adjacency);
+	}
+
+	// How DbInitializer connected units before: every pair, both geometries buffered by the tolerance
+	private static Map<String, Set<String>> bufferAndIntersect(Map<String, Geometry> geometries, double tolerance, Set<String> forbiddenPairs) {
+		Map<String, Geometry> buffered = new HashMap<>();
+		for (Map.Entry<String, Geometry> geometry : geometries.entrySet()) {
+			buffered.put(geometry.getKey(), geometry.getValue().buffer(tolerance));
+		}
+		Map<String, Set<String>> adjacency = new HashMap<>();
+		for (String unit : geometries.keySet()) {
+			Set<String> neighbours = new HashSet<>();
+			for (String other : geometries.keySet()) {
+				if (!unit.equals(other) && !forbiddenPairs.contains(unit + "-" + other) && !forbiddenPairs.contains(other + "-" + unit)
+						&& buffered.get(unit).intersects(buffered.get(other))) {
+					neighbours.add(other);
+				}
+			}
+			adjacency.put(unit, neighbours);
+		}
+		return adjacency;
+	}
+
+	private static Geometry square(double x, double y) throws ParseException {
+		return new WKTReader().read(String.format("POLYGON ((%1$s %2$s, %3$s %2$s, %3$s %4$s, %1$s %4$s, %1$s %2$s))", x, y, x + 1, y + 1));
+	}
+}
@@ -0,0 +1,120 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DistanceMatrixTest {
+
+	@Test
+	void rowsMatchZeroOneBfs() {
+		Random random = new Random(42);
+		for (int test = 0; test < 100; test++) {
+			assertRowsMatch(TestGraphs.random(random, 1 + random.nextInt(80), random.nextDouble() * 4));
+		}
+	}
+
+	// Distances over 127 don't fit into the byte matrix
+	@Test
+	void rowsMatchZeroOneBfsOnLongPath() {
+		List<String> edges = new ArrayList<>();
+		for (int unit = 0; unit < 199; unit++) {
+			edges.add(String.format("U%03d-U%03d", unit, unit + 1));
+		}
+		edges.add("Z");
+		GraphManager graph = TestGraphs.of(edges.toArray(new String[0]));
+		assertEquals(199, graph.distances.distance(0, 199));
+		assertEquals(-1, graph.distances.distance(0, graph.unitId("Z")));
+		assertRowsMatch(graph);
+	}
+
+	@Test
+	void rejectsGraphsAboveTheCap() {
+		GraphManager graph = TestGraphs.random(new Random(42), DistanceMatrix.MAX_UNITS + 1, 0);
+		assertNull(graph.distances);
+		assertNull(graph.puzzles);
+		assertThrows(IllegalArgumentException.class, () -> new DistanceMatrix(graph));
+	}
+
+	// Without a matrix, distances, hints, routes and puzzles come from searches
+	@Test
+	void graphsAboveTheCapSearchInstead() {
+		Random random = new Random(42);
+		GraphManager graph = TestGraphs.random(random, DistanceMatrix.MAX_UNITS + 500, 2.5);
+		assertNull(graph.distances);
+		GeographicalService service = new GeographicalService();
+		ZeroOneBfs bfs = ZeroOneBfs.acquire();
+		try {
+			for (int test = 0; test < 50; test++) {
+				int start = random.nextInt(graph.size());
+				int end = random.nextInt(graph.size());
+				bfs.run(graph, -1, end, new BitSet());
+				int expected = bfs.visited(start) ? bfs.distance(start) : -1;
+				assertEquals(expected, graph.distance(start, end));
+				assertEquals(expected, graph.distancesFrom(end)[start]);
+				assertEquals(expected == -1 ? -1 : expected - 1, service.optimalDistance(graph, start, end));
+
+				int next = graph.nextHop(start, end);
+				OptimalRoutes routes = OptimalRoutes.of(graph, start, end);
+				if (expected <= 0) {
+					assertEquals(-1, next);
+				}
+				else {
+					assertTrue(graph.isNeighbour(start, next));
+					assertEquals(expected - 1, bfs.distance(next));
+					assertEquals(expected - 1, routes.path().length);
+					assertTrue(routes.pathCount() >= 1);
+				}
+				if (expected == -1) {
+					assertNull(routes);
+				}
+			}
+		} finally {
+			bfs.release();
+		}
+
+		for (int test = 0; test < 20; test++) {
+			int[] puzzle = service.getRandomConnectedUnits(graph, 3, 5);
+			int steps = graph.distance(puzzle[0], puzzle[1]) - 1;
+			assertTrue(steps >= 3 && steps <= 5, "steps " + steps);
+		}
+		for (PuzzleIndex.Difficulty difficulty : PuzzleIndex.Difficulty.values()) {
+			int[] puzzle = service.getRandomConnectedUnits(graph, difficulty);
+			assertTrue(graph.distance(puzzle[0], puzzle[1]) >= 2);
+		}
+	}
+
+	private static void assertRowsMatch(GraphManager graph) {
+		ZeroOneBfs bfs = ZeroOneBfs.acquire();
+		try {
+			for (int source = 0; source < graph.size(); source++) {
+				bfs.run(graph, -1, source, new BitSet());
+				for (int unit = 0; unit < graph.size(); unit++) {
+					int expected = bfs.visited(unit) ? bfs.distance(unit) : -1;
+					assertEquals(expected, graph.distances.distance(source, unit), source + " / " + unit);
+					assertEquals(expected, graph.distances.distance(unit, source), unit + " / " + source);
+
+					// The next hop is a neighbour one step closer to the source
+					int next = graph.distances.nextHop(unit, source);
+					if (expected <= 0) {
+						assertEquals(-1, next);
+					}
+					else {
+						assertTrue(graph.isNeighbour(unit, next));
+						assertEquals(expected - 1, bfs.distance(next));
+					}
+				}
+			}
+		} finally {
+			bfs.release();
+		}
+	}
+}
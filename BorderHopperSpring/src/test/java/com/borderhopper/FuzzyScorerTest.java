@@ -0,0 +1,87 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class FuzzyScorerTest {
+
+	// The matrix based scoring that GeographicalService used before FuzzyScorer
+	private static int referenceDistance(String search, String unitName) {
+		return referenceDistance(search, unitName, 20100);
+	}
+
+	private static int referenceDistance(String search, String unitName, int distanceCutoff) {
+		int penaltyFront = 100;
+		int penaltyGap = 1000;
+		int penaltySkipLetter = 10000;
+		int[][] dp = new int[search.length() + 1][unitName.length() + 1];
+
+		for (int j = 0; j <= unitName.length(); j++) {
+			dp[search.length()][j] = unitName.length() - j;
+		}
+		for (int i = 0; i < search.length(); i++) {
+			dp[i][unitName.length()] = (search.length() - i) * penaltySkipLetter;
+		}
+		for (int i = search.length() - 1; i >= 0; i--) {
+			for (int j = unitName.length() - 1; j >= 0; j--) {
+				dp[i][j] = distanceCutoff;
+				if (search.charAt(i) == unitName.charAt(j)) {
+					dp[i][j] = Math.min(dp[i][j], dp[i + 1][j + 1]);
+				}
+				dp[i][j] = Math.min(dp[i][j], dp[i + 1][j] + penaltySkipLetter);
+				int penaltyMoveJ = i == 0 ? penaltyFront : penaltyGap;
+				dp[i][j] = Math.min(dp[i][j], dp[i][j + 1] + penaltyMoveJ);
+			}
+		}
+		if (dp[0][0] >= distanceCutoff) {
+			return -1;
+		}
+		return dp[0][0];
+	}
+
+	@Test
+	void matchesReferenceOnUnitNames() {
+		String[] names = { "serbia", "bosnia and herzegovina", "beograd", "novi sad", "sremska mitrovica", "cacak", "" };
+		String[] searches = { "", "s", "ser", "serb", "srb", "bih", "bosna", "novi", "nsad", "mitr", "xyz", "beogradd" };
+		for (String name : names) {
+			for (String search : searches) {
+				assertEquals(referenceDistance(search, name), FuzzyScorer.score(search, name), search + " / " + name);
+			}
+		}
+	}
+
+	@Test
+	void matchesReferenceOnRandomStrings() {
+		Random random = new Random(42);
+		String letters = "abcdeirs ";
+		for (int test = 0; test < 20000; test++) {
+			String search = randomString(random, letters, random.nextInt(8));
+			String name = randomString(random, letters, random.nextInt(40));
+			assertEquals(referenceDistance(search, name), FuzzyScorer.score(search, name), search + " / " + name);
+		}
+	}
+
+	@Test
+	void matchesReferenceWithOtherCutoffs() {
+		Random random = new Random(42);
+		String letters = "abcdeirs ";
+		for (int test = 0; test < 20000; test++) {
+			String search = randomString(random, letters, random.nextInt(8));
+			String name = randomString(random, letters, random.nextInt(120));
+			int cutoff = FuzzyScorer.DISTANCE_CUTOFF + random.nextInt(20);
+			assertEquals(referenceDistance(search, name, cutoff), FuzzyScorer.score(search.toCharArray(), name.toCharArray(), cutoff),
+					search + " / " + name + " / " + cutoff);
+		}
+	}
+
+	private static String randomString(Random random, String letters, int length) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			builder.append(letters.charAt(random.nextInt(letters.length())));
+		}
+		return builder.toString();
+	}
+}
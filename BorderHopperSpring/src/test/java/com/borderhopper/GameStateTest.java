@@ -0,0 +1,98 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GameStateTest {
+
+	private final GeographicalService service = new GeographicalService();
+
+	// Every guess updates the distances incrementally, after every one of them they have to equal a new GameState and the
+	// searches GeographicalService answers without a session
+	@Test
+	void incrementalGuessesMatchFullRecompute() {
+		Random random = new Random(42);
+		for (int test = 0; test < 200; test++) {
+			GraphManager graph = TestGraphs.random(random, 2 + random.nextInt(60), 1 + random.nextDouble() * 3);
+			int start = random.nextInt(graph.size());
+			int end = random.nextInt(graph.size());
+			if (start == end) {
+				continue;
+			}
+			GameState state = new GameState(graph, start, end, new BitSet());
+			BitSet unitsGuessed = new BitSet();
+			List<Integer> guesses = new ArrayList<>();
+			for (int unit = 0; unit < graph.size(); unit++) {
+				guesses.add(unit);
+			}
+			Collections.shuffle(guesses, random);
+			for (int unit : guesses) {
+				int previous = state.distanceRemaining();
+				boolean guessed = state.guess(unit);
+				assertEquals(unit != start && unit != end, guessed);
+				if (guessed) {
+					unitsGuessed.set(unit);
+				}
+				assertMatchesRecompute(graph, start, end, unitsGuessed, state);
+				// A guess never makes the remaining distance longer and shortens it by at most one unit
+				int distance = state.distanceRemaining();
+				assertTrue(previous == -1 ? distance == -1 : distance == previous || distance == previous - 1);
+				assertFalse(state.guess(unit));
+			}
+			// With every unit guessed, nothing is left in between
+			assertTrue(state.distanceRemaining() <= 0);
+		}
+	}
+
+	@Test
+	void guessesAlreadyMadeWhenStarted() {
+		GraphManager graph = TestGraphs.of("A-B", "B-C", "C-D", "A-E", "E-D", "X");
+		BitSet unitsGuessed = new BitSet();
+		unitsGuessed.set(graph.unitId("B"));
+		GameState state = new GameState(graph, graph.unitId("A"), graph.unitId("D"), unitsGuessed);
+		assertEquals(1, state.distanceRemaining());
+		assertEquals(List.of(graph.unitId("B")), state.connected());
+		assertTrue(state.guess(graph.unitId("C")));
+		assertEquals(0, state.distanceRemaining());
+		assertEquals(-1, state.nextUnit());
+		assertEquals(List.of(graph.unitId("B"), graph.unitId("C")), state.connected());
+		// The state keeps its own copy of the guesses
+		assertFalse(unitsGuessed.get(graph.unitId("C")));
+
+		GameState unreachable = new GameState(graph, graph.unitId("A"), graph.unitId("X"), new BitSet());
+		assertEquals(-1, unreachable.distanceRemaining());
+		assertTrue(unreachable.guess(graph.unitId("B")));
+		assertEquals(-1, unreachable.distanceRemaining());
+		assertEquals(-1, unreachable.nextUnit());
+	}
+
+	private void assertMatchesRecompute(GraphManager graph, int start, int end, BitSet unitsGuessed, GameState state) {
+		String game = start + " / " + end + " / " + unitsGuessed;
+		GameState recomputed = new GameState(graph, start, end, unitsGuessed);
+		int distance = service.distanceRemaining(graph, start, end, unitsGuessed);
+		assertEquals(distance, recomputed.distanceRemaining(), game);
+		assertEquals(distance, state.distanceRemaining(), game);
+		assertEquals(Arrays.stream(service.getConnected(graph, start, end, unitsGuessed)).sorted().boxed().toList(), state.connected(), game);
+		assertEquals(recomputed.connected(), state.connected(), game);
+
+		// Hints can differ between equally good paths, any one of them has to bring the player a step closer
+		int next = state.nextUnit();
+		assertEquals(service.getNextUnit(graph, start, end, unitsGuessed) == -1, next == -1, game);
+		if (next != -1) {
+			assertFalse(unitsGuessed.get(next) || next == start || next == end, game);
+			BitSet withNext = (BitSet) unitsGuessed.clone();
+			withNext.set(next);
+			assertEquals(distance - 1, service.distanceRemaining(graph, start, end, withNext), game);
+		}
+	}
+}
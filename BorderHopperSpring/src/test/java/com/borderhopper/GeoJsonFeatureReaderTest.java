@@ -0,0 +1,135 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+class GeoJsonFeatureReaderTest {
+
+	private static List<GeoJsonFeatureReader.Feature> read(String json) throws IOException {
+		List<GeoJsonFeatureReader.Feature> features = new ArrayList<>();
+		try (GeoJsonFeatureReader reader = new GeoJsonFeatureReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+			GeoJsonFeatureReader.Feature feature;
+			while ((feature = reader.next()) != null) {
+				features.add(feature);
+			}
+			assertNull(reader.next());
+		}
+		return features;
+	}
+
+	private static Geometry geometry(String geometry) throws IOException {
+		List<GeoJsonFeatureReader.Feature> features = read("{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"geometry\":"
+				+ geometry + ",\"properties\":{}}]}");
+		assertEquals(1, features.size());
+		return features.get(0).geometry();
+	}
+
+	@Test
+	void readsMembersInAnyOrder() throws IOException {
+		String json = """
+				{"features": [
+				  {"properties": {"name": "A", "population": 7, "area": 1.5, "capital": true, "code": null,
+				                  "tags": ["x", "y"], "nested": {"name": "not this one"}},
+				   "geometry": {"coordinates": [[[0, 0], [1, 0], [1, 1], [0, 0]]], "type": "Polygon"},
+				   "type": "Feature", "id": 1},
+				  {"type": "Feature", "bbox": [0, 0, 1, 1], "geometry": {"type": "Point", "coordinates": [20.5, 44.8]},
+				   "properties": {"name": "B"}},
+				  {"geometry": null, "properties": {"name": "C"}}
+				 ],
+				 "type": "FeatureCollection", "crs": {"type": "name", "properties": {"name": "EPSG:4326"}}}
+				""";
+		List<GeoJsonFeatureReader.Feature> features = read(json);
+		assertEquals(3, features.size());
+		GeoJsonFeatureReader.Feature a = features.get(0);
+		assertEquals(List.of("name", "population", "area", "capital", "code"), new ArrayList<>(a.properties().keySet()));
+		assertEquals("A", a.properties().get("name"));
+		assertEquals(7, ((Number) a.properties().get("population")).intValue());
+		assertEquals(1.5, a.properties().get("area"));
+		assertEquals(true, a.properties().get("capital"));
+		assertNull(a.properties().get("code"));
+		assertEquals("POLYGON ((0 0, 1 0, 1 1, 0 0))", a.geometry().toText());
+		assertEquals("B", features.get(1).properties().get("name"));
+		assertEquals("POINT (20.5 44.8)", features.get(1).geometry().toText());
+		assertNull(features.get(2).geometry());
+	}
+
+	@Test
+	void skipsMembersBeforeFeatures() throws IOException {
+		String json = """
+				{"type": "FeatureCollection", "name": "units", "metadata": {"features": [1, 2], "list": [[{}]]},
+				 "features": [{"type": "Feature", "properties": {"name": "A"}, "geometry": {"type": "Point", "coordinates": [1, 2]}}]}
+				""";
+		List<GeoJsonFeatureReader.Feature> features = read(json);
+		assertEquals(1, features.size());
+		assertEquals("A", features.get(0).properties().get("name"));
+		assertEquals(List.of(), read("{\"type\": \"FeatureCollection\", \"features\": []}"));
+		assertEquals(List.of(), read("{\"type\": \"FeatureCollection\"}"));
+	}
+
+	@Test
+	void readsEveryGeometryType() throws IOException {
+		assertEquals("LINESTRING (0 0, 1 1, 2 0)", geometry("{\"type\":\"LineString\",\"coordinates\":[[0,0],[1,1],[2,0]]}").toText());
+		assertEquals("POLYGON ((0 0, 10 0, 10 10, 0 0), (1 1, 2 1, 2 2, 1 1))",
+				geometry("{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[10,0],[10,10],[0,0]],[[1,1],[2,1],[2,2],[1,1]]]}").toText());
+		assertEquals("MULTIPOINT ((1 2), (3 4))", geometry("{\"type\":\"MultiPoint\",\"coordinates\":[[1,2],[3,4]]}").toText());
+		assertEquals("MULTILINESTRING ((0 0, 1 1), (2 2, 3 3))",
+				geometry("{\"type\":\"MultiLineString\",\"coordinates\":[[[0,0],[1,1]],[[2,2],[3,3]]]}").toText());
+		assertEquals("MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))",
+				geometry("{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[1,0],[1,1],[0,0]]],[[[5,5],[6,5],[6,6],[5,5]]]]}").toText());
+		assertEquals("POLYGON EMPTY", geometry("{\"type\":\"Polygon\",\"coordinates\":[]}").toText());
+		assertEquals("POINT EMPTY", geometry("{\"type\":\"Point\",\"coordinates\":[]}").toText());
+	}
+
+	@Test
+	void readsNestedCollections() throws IOException {
+		Geometry geometry = geometry("""
+				{"geometries": [
+				   {"type": "Point", "coordinates": [1, 2]},
+				   {"geometries": [{"coordinates": [[0, 0], [1, 1]], "type": "LineString"}, {"type": "GeometryCollection", "geometries": []}],
+				    "type": "GeometryCollection"}
+				 ],
+				 "type": "GeometryCollection"}
+				""");
+		assertTrue(geometry instanceof GeometryCollection);
+		assertEquals("GEOMETRYCOLLECTION (POINT (1 2), GEOMETRYCOLLECTION (LINESTRING (0 0, 1 1), GEOMETRYCOLLECTION EMPTY))",
+				geometry.toText());
+	}
+
+	// Altitudes are kept, anything after them is ignored
+	@Test
+	void readsPositionsWithMoreOrdinates() throws IOException {
+		Coordinate[] coordinates = geometry("{\"type\":\"LineString\",\"coordinates\":[[1,2,3],[4,5,6,7],[8,9]]}").getCoordinates();
+		assertEquals(new Coordinate(1, 2, 3), coordinates[0]);
+		assertEquals(3, coordinates[0].getZ());
+		assertEquals(6, coordinates[1].getZ());
+		assertTrue(Double.isNaN(coordinates[2].getZ()));
+		assertEquals(8, coordinates[2].getX());
+		assertEquals(9, coordinates[2].getY());
+	}
+
+	@Test
+	void rejectsMalformedGeometries() {
+		assertThrows(JsonParseException.class, () -> geometry("{\"type\":\"Point\",\"coordinates\":[1]}"));
+		assertThrows(JsonParseException.class, () -> geometry("{\"type\":\"LineString\",\"coordinates\":[[0,0],[1]]}"));
+		assertThrows(JsonParseException.class, () -> geometry("{\"type\":\"LineString\",\"coordinates\":[[0,0],1]}"));
+		assertThrows(JsonParseException.class, () -> geometry("{\"coordinates\":[1,2]}"));
+		assertThrows(JsonParseException.class, () -> geometry("{\"type\":\"Circle\",\"coordinates\":[1,2]}"));
+		assertThrows(JsonParseException.class, () -> read("[]"));
+		assertThrows(JsonParseException.class, () -> read("{\"features\":[1]}"));
+	}
+}
@@ -0,0 +1,46 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// The header handling of the geometry endpoints
+class GeometryResponseTest {
+
+	@Test
+	void acceptsGzipWithQualityAboveZero() {
+		assertTrue(GeographicalController.acceptsGzip("gzip"));
+		assertTrue(GeographicalController.acceptsGzip("deflate, gzip;q=0.5, br"));
+		assertTrue(GeographicalController.acceptsGzip("x-gzip"));
+		assertTrue(GeographicalController.acceptsGzip("GZIP ; Q=1.0"));
+		assertTrue(GeographicalController.acceptsGzip("br, *"));
+		assertFalse(GeographicalController.acceptsGzip(null));
+		assertFalse(GeographicalController.acceptsGzip(""));
+		assertFalse(GeographicalController.acceptsGzip("identity"));
+		assertFalse(GeographicalController.acceptsGzip("gzip;q=0"));
+		assertFalse(GeographicalController.acceptsGzip("gzip;q=0.000, deflate"));
+		assertFalse(GeographicalController.acceptsGzip("*;q=0"));
+		assertFalse(GeographicalController.acceptsGzip("gzip;q=0, *"));
+		assertFalse(GeographicalController.acceptsGzip("gzip;q=abc"));
+		assertFalse(GeographicalController.acceptsGzip("gzipped"));
+	}
+
+	@Test
+	void matchesWholeETags() {
+		assertTrue(GeographicalController.matchesETag("\"abc\"", "\"abc\""));
+		assertTrue(GeographicalController.matchesETag("\"x\", W/\"abc\"", "\"abc\""));
+		assertTrue(GeographicalController.matchesETag(" * ", "\"abc\""));
+		assertFalse(GeographicalController.matchesETag(null, "\"abc\""));
+		assertFalse(GeographicalController.matchesETag("\"abcd\"", "\"abc\""));
+		assertFalse(GeographicalController.matchesETag("\"xabc\"", "\"abc\""));
+		assertFalse(GeographicalController.matchesETag("\"abc-gzip\"", "\"abc\""));
+		assertFalse(GeographicalController.matchesETag("\"abc\"", "\"abc-gzip\""));
+	}
+
+	@Test
+	void gzipHasItsOwnETag() {
+		assertEquals("\"abc-gzip\"", GeographicalController.gzipETag("\"abc\""));
+	}
+}
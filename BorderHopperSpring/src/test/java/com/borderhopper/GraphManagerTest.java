@@ -0,0 +1,85 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GraphManagerTest {
+
+	private static final int SIZE = 20;
+
+	private static final GraphManager graph = TestGraphs.random(new Random(23), SIZE, 1.5);
+
+	private static BitSet units(int... ids) {
+		BitSet units = new BitSet();
+		for (int id : ids) {
+			units.set(id);
+		}
+		return units;
+	}
+
+	@Test
+	void unitSetsSurviveTheRoundTrip() {
+		Random random = new Random(5);
+		for (int i = 0; i < 200; i++) {
+			BitSet units = new BitSet();
+			for (int unit = 0; unit < SIZE; unit++) {
+				if (random.nextInt(3) == 0) {
+					units.set(unit);
+				}
+			}
+			assertEquals(units, graph.decodeUnitSet(GraphManager.encodeUnitSet(units)), units.toString());
+		}
+		assertEquals(new BitSet(), graph.decodeUnitSet(GraphManager.encodeUnitSet(new BitSet())));
+	}
+
+	@Test
+	void unitIsBitOfItsByteFromTheLowestUp() {
+		// Unit 0 is the lowest bit of byte 0, unit 7 its highest and unit 9 the second bit of byte 1
+		assertEquals("AQI", GraphManager.encodeUnitSet(units(0, 9)));
+		assertEquals("gA", GraphManager.encodeUnitSet(units(7)));
+		assertEquals(units(0, 9), graph.decodeUnitSet("AQI"));
+		assertEquals(units(7), graph.decodeUnitSet("gA"));
+		assertEquals(units(8, 19), graph.decodeUnitSet("AAEI"));
+	}
+
+	@Test
+	void acceptsPaddedAndUnpaddedInput() {
+		assertEquals(units(0, 9), graph.decodeUnitSet("AQI="));
+		assertEquals(units(7), graph.decodeUnitSet("gA=="));
+		assertEquals(graph.decodeUnitSet("gA"), graph.decodeUnitSet("gA=="));
+		assertEquals(new BitSet(), graph.decodeUnitSet(""));
+	}
+
+	@Test
+	void rejectsInvalidBase64() {
+		// '+' and '/' belong to the plain alphabet, not the URL safe one
+		assertThrows(InvalidUnitSetException.class, () -> graph.decodeUnitSet("AQ+I"));
+		assertThrows(InvalidUnitSetException.class, () -> graph.decodeUnitSet("AQ/I"));
+		assertThrows(InvalidUnitSetException.class, () -> graph.decodeUnitSet("A"));
+		assertThrows(InvalidUnitSetException.class, () -> graph.decodeUnitSet("AQI*"));
+	}
+
+	@Test
+	void rejectsBitsBeyondTheUnits() {
+		assertEquals(units(SIZE - 1), graph.decodeUnitSet(GraphManager.encodeUnitSet(units(SIZE - 1))));
+		assertThrows(InvalidUnitSetException.class, () -> graph.decodeUnitSet(GraphManager.encodeUnitSet(units(SIZE))));
+		assertThrows(InvalidUnitSetException.class, () -> graph.decodeUnitSet(GraphManager.encodeUnitSet(units(0, 63))));
+		// Trailing zero bytes do not name any unit
+		assertEquals(units(0), graph.decodeUnitSet("AQAAAAAA"));
+	}
+
+	@Test
+	void requireUnitIdRejectsIdsOutsideTheType() {
+		assertEquals(0, graph.requireUnitId(0));
+		assertEquals(SIZE - 1, graph.requireUnitId(SIZE - 1));
+		assertThrows(UnitNotFoundException.class, () -> graph.requireUnitId(-1));
+		assertThrows(UnitNotFoundException.class, () -> graph.requireUnitId(Integer.MIN_VALUE));
+		assertThrows(UnitNotFoundException.class, () -> graph.requireUnitId(SIZE));
+		assertThrows(UnitNotFoundException.class, () -> graph.requireUnitId(Integer.MAX_VALUE));
+	}
+}
@@ -0,0 +1,139 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class OptimalRoutesTest {
+
+	// From one corner of a 3 x 3 grid to the other every unit is on a route, and there are 4 choose 2 routes
+	@Test
+	void routesAcrossGrid() {
+		GraphManager graph = TestGraphs.of("G00-G01", "G01-G02", "G10-G11", "G11-G12", "G20-G21", "G21-G22",
+				"G00-G10", "G10-G20", "G01-G11", "G11-G21", "G02-G12", "G12-G22");
+		OptimalRoutes.Names routes = OptimalRoutes.of(graph, graph.unitId("G00"), graph.unitId("G22")).names(graph);
+		assertEquals(List.of("G01", "G02", "G10", "G11", "G12", "G20", "G21"), routes.units());
+		assertEquals(6, routes.pathCount());
+		assertFalse(routes.pathCountSaturated());
+		assertEquals(List.of("G01", "G02", "G12"), routes.path());
+	}
+
+	// Units off the optimal routes are left out, and neighbours have a single route with nothing in between
+	@Test
+	void onlyOptimalRoutes() {
+		GraphManager graph = TestGraphs.of("S-A", "A-E", "S-B", "B-E", "S-C", "C-D", "D-E", "X");
+		OptimalRoutes.Names routes = OptimalRoutes.of(graph, graph.unitId("S"), graph.unitId("E")).names(graph);
+		assertEquals(List.of("A", "B"), routes.units());
+		assertEquals(2, routes.pathCount());
+		assertEquals(List.of("A"), routes.path());
+
+		OptimalRoutes neighbours = OptimalRoutes.of(graph, graph.unitId("C"), graph.unitId("D"));
+		assertEquals(0, neighbours.units().length);
+		assertEquals(0, neighbours.path().length);
+		assertEquals(1, neighbours.pathCount());
+
+		assertNull(OptimalRoutes.of(graph, graph.unitId("S"), graph.unitId("X")));
+	}
+
+	// Every diamond doubles the routes, 62 of them still fit into a long and 63 don't
+	@Test
+	void pathCountSaturates() {
+		OptimalRoutes fits = diamonds(62);
+		assertEquals(1L << 62, fits.pathCount());
+		assertFalse(fits.pathCountSaturated());
+
+		OptimalRoutes saturated = diamonds(63);
+		assertEquals(Long.MAX_VALUE, saturated.pathCount());
+		assertTrue(saturated.pathCountSaturated());
+
+		OptimalRoutes farBeyond = diamonds(70);
+		assertEquals(Long.MAX_VALUE, farBeyond.pathCount());
+		assertTrue(farBeyond.pathCountSaturated());
+		assertEquals(2 * 70 - 1, farBeyond.path().length);
+	}
+
+	@Test
+	void matchesEnumeratedRoutes() {
+		Random random = new Random(42);
+		for (int test = 0; test < 300; test++) {
+			GraphManager graph = TestGraphs.random(random, 2 + random.nextInt(11), 1 + random.nextDouble() * 2);
+			int start = random.nextInt(graph.size());
+			int end = random.nextInt(graph.size());
+			if (start == end) {
+				continue;
+			}
+			List<int[]> enumerated = new ArrayList<>();
+			int optimal = graph.distances.distance(start, end);
+			if (optimal != -1) {
+				enumerate(graph, end, optimal, new int[optimal + 1], 0, start, enumerated);
+			}
+			OptimalRoutes routes = OptimalRoutes.of(graph, start, end);
+			if (optimal == -1) {
+				assertNull(routes);
+				continue;
+			}
+			assertEquals(enumerated.size(), routes.pathCount());
+			Set<Integer> units = new TreeSet<>();
+			for (int[] route : enumerated) {
+				for (int i = 1; i < route.length - 1; i++) {
+					units.add(route[i]);
+				}
+			}
+			assertArrayEquals(units.stream().mapToInt(Integer::intValue).toArray(), routes.units());
+
+			// The path is the first of the routes in unit id order
+			int[] first = enumerated.stream().min(OptimalRoutesTest::compareRoutes).orElseThrow();
+			int[] path = new int[Math.max(optimal - 1, 0)];
+			System.arraycopy(first, 1, path, 0, path.length);
+			assertArrayEquals(path, routes.path());
+		}
+	}
+
+	// Chain of diamonds J00 - A00 / B00 - J01 - ..., from the first junction to the last one
+	private static OptimalRoutes diamonds(int count) {
+		List<String> edges = new ArrayList<>();
+		for (int diamond = 0; diamond < count; diamond++) {
+			String from = String.format("J%02d", diamond);
+			String to = String.format("J%02d", diamond + 1);
+			for (String middle : new String[] { String.format("A%02d", diamond), String.format("B%02d", diamond) }) {
+				edges.add(from + "-" + middle);
+				edges.add(middle + "-" + to);
+			}
+		}
+		GraphManager graph = TestGraphs.of(edges.toArray(new String[0]));
+		return OptimalRoutes.of(graph, graph.unitId("J00"), graph.unitId(String.format("J%02d", count)));
+	}
+
+	// Depth first over every walk of the optimal length that ends at end
+	private static void enumerate(GraphManager graph, int end, int optimal, int[] route, int length, int unit, List<int[]> routes) {
+		route[length] = unit;
+		if (length == optimal) {
+			if (unit == end) {
+				routes.add(route.clone());
+			}
+			return;
+		}
+		for (int e = graph.offsets[unit]; e < graph.offsets[unit + 1]; e++) {
+			enumerate(graph, end, optimal, route, length + 1, graph.targets[e], routes);
+		}
+	}
+
+	private static int compareRoutes(int[] a, int[] b) {
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] != b[i]) {
+				return Integer.compare(a[i], b[i]);
+			}
+		}
+		return 0;
+	}
+}
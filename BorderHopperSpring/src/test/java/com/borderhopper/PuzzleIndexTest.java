@@ -0,0 +1,104 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.borderhopper.PuzzleIndex.Difficulty;
+
+class PuzzleIndexTest {
+
+	// A path of 7 units has 7 - d pairs at distance d: 5 puzzles with 1 step, 4 with 2, 3 with 3, 2 with 4 and 1 with 5.
+	// The thirds of the 15 puzzles are reached at 1, 3 and 5 steps.
+	@Test
+	void difficultiesSplitPuzzlesIntoThirds() {
+		GraphManager graph = TestGraphs.of("A-B", "B-C", "C-D", "D-E", "E-F", "F-G");
+		PuzzleIndex puzzles = graph.puzzles;
+		assertEquals(5, puzzles.maxSteps());
+		assertEquals(6, puzzles.count(0, 0));
+		assertEquals(5, puzzles.count(1, 1));
+		assertEquals(15, puzzles.count(1, Integer.MAX_VALUE));
+		assertEquals(0, puzzles.count(6, Integer.MAX_VALUE));
+
+		assertEquals(5, pairs(graph, Difficulty.Easy, 1, 1));
+		assertEquals(7, pairs(graph, Difficulty.Medium, 2, 3));
+		assertEquals(3, pairs(graph, Difficulty.Hard, 4, 5));
+		assertEquals(4, pairs(graph, 2, 2));
+		assertEquals(1, pairs(graph, 5, 9));
+		assertNull(puzzles.random(6, 9));
+		assertNull(puzzles.random(3, 2));
+	}
+
+	// The only puzzle of A-B-C lands in Hard, so Easy and Medium have to fall back to it
+	@Test
+	void emptyDifficultiesFallBackToTheNearestOne() {
+		GraphManager graph = TestGraphs.of("A-B", "B-C");
+		int a = graph.unitId("A");
+		int c = graph.unitId("C");
+		for (Difficulty difficulty : Difficulty.values()) {
+			int[] puzzle = graph.puzzles.random(difficulty);
+			assertNotNull(puzzle, difficulty.name());
+			assertEquals(Set.of(a, c), Set.of(puzzle[0], puzzle[1]));
+		}
+	}
+
+	// Units of one component that all border each other and units of different components are never a puzzle
+	@Test
+	void graphsWithoutPuzzles() {
+		GraphManager triangle = TestGraphs.of("A-B", "B-C", "C-A", "X", "Y-Z");
+		assertEquals(0, triangle.puzzles.count(1, Integer.MAX_VALUE));
+		assertNull(triangle.puzzles.random(1, Integer.MAX_VALUE));
+		for (Difficulty difficulty : Difficulty.values()) {
+			assertNull(triangle.puzzles.random(difficulty));
+		}
+
+		GraphManager single = TestGraphs.of("A");
+		assertEquals(-1, single.puzzles.maxSteps());
+		assertNull(single.puzzles.random(0, Integer.MAX_VALUE));
+		assertNull(single.puzzles.random(Difficulty.Medium));
+	}
+
+	// Puzzles of a path next to a separate component only ever pair units of the path
+	@Test
+	void puzzlesStayInTheirComponent() {
+		GraphManager graph = TestGraphs.of("A-B", "B-C", "C-D", "X-Y", "Y-Z");
+		Set<String> path = Set.of("A", "B", "C", "D");
+		Set<String> other = Set.of("X", "Y", "Z");
+		for (int test = 0; test < 200; test++) {
+			int[] puzzle = graph.puzzles.random(1, Integer.MAX_VALUE);
+			String start = graph.unitNames[puzzle[0]];
+			String end = graph.unitNames[puzzle[1]];
+			assertTrue(path.contains(start) && path.contains(end) || other.contains(start) && other.contains(end), start + " / " + end);
+		}
+		assertEquals(4, graph.puzzles.count(1, Integer.MAX_VALUE));
+	}
+
+	// Number of distinct pairs drawn for the difficulty, all of them with between minSteps and maxSteps steps
+	private static int pairs(GraphManager graph, Difficulty difficulty, int minSteps, int maxSteps) {
+		Set<Set<Integer>> pairs = new HashSet<>();
+		for (int test = 0; test < 500; test++) {
+			pairs.add(assertSteps(graph, graph.puzzles.random(difficulty), minSteps, maxSteps));
+		}
+		return pairs.size();
+	}
+
+	private static int pairs(GraphManager graph, int minSteps, int maxSteps) {
+		Set<Set<Integer>> pairs = new HashSet<>();
+		for (int test = 0; test < 500; test++) {
+			pairs.add(assertSteps(graph, graph.puzzles.random(minSteps, maxSteps), minSteps, maxSteps));
+		}
+		return pairs.size();
+	}
+
+	private static Set<Integer> assertSteps(GraphManager graph, int[] puzzle, int minSteps, int maxSteps) {
+		int steps = graph.distances.distance(puzzle[0], puzzle[1]) - 1;
+		assertTrue(steps >= minSteps && steps <= maxSteps, "steps " + steps);
+		return Set.of(puzzle[0], puzzle[1]);
+	}
+}
@@ -0,0 +1,110 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class QueryCacheTest {
+
+	private static final GraphManager graph = TestGraphs.random(new Random(31), 60, 2.5);
+
+	// Counts the searches that reach the service, a slow search keeps concurrent requests waiting on the same miss
+	private static final class CountingService extends GeographicalService {
+
+		final AtomicInteger nextUnitCalls = new AtomicInteger();
+		final AtomicInteger connectedCalls = new AtomicInteger();
+		volatile long delayMillis;
+
+		@Override
+		public int getNextUnit(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+			nextUnitCalls.incrementAndGet();
+			return super.getNextUnit(graph, start, end, unitsGuessed);
+		}
+
+		@Override
+		public int[] getConnected(GraphManager graph, int start, int end, BitSet unitsGuessed) {
+			connectedCalls.incrementAndGet();
+			try {
+				Thread.sleep(delayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.getConnected(graph, start, end, unitsGuessed);
+		}
+	}
+
+	private final CountingService service = new CountingService();
+
+	private QueryCache queryCache() {
+		QueryCache queryCache = new QueryCache();
+		ReflectionTestUtils.setField(queryCache, "geographicalService", service);
+		ReflectionTestUtils.setField(queryCache, "maxBytes", 1L << 20);
+		ReflectionTestUtils.invokeMethod(queryCache, "start");
+		return queryCache;
+	}
+
+	private static BitSet guessed(int... units) {
+		BitSet unitsGuessed = new BitSet();
+		for (int unit : units) {
+			unitsGuessed.set(unit);
+		}
+		return unitsGuessed;
+	}
+
+	@Test
+	void guessOrderDoesNotMatter() {
+		QueryCache queryCache = queryCache();
+		int first = queryCache.getNextUnit(graph, 0, 59, guessed(3, 17, 42, 8));
+		int second = queryCache.getNextUnit(graph, 0, 59, guessed(42, 8, 3, 17));
+		int third = queryCache.getNextUnit(graph, 0, 59, guessed(8, 42, 17, 3));
+		assertEquals(first, second);
+		assertEquals(first, third);
+		assertEquals(1, service.nextUnitCalls.get());
+
+		queryCache.getNextUnit(graph, 0, 59, guessed(3, 17, 42));
+		queryCache.getNextUnit(graph, 59, 0, guessed(3, 17, 42, 8));
+		assertEquals(3, service.nextUnitCalls.get());
+	}
+
+	@Test
+	void concurrentMissesComputeOnce() throws Exception {
+		QueryCache queryCache = queryCache();
+		service.delayMillis = 200;
+		int threads = 8;
+		BitSet unitsGuessed = guessed(1, 2, 5, 11, 23, 40);
+		CountDownLatch ready = new CountDownLatch(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<int[]>> answers = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				answers.add(executor.submit(() -> {
+					ready.countDown();
+					ready.await();
+					return queryCache.getConnected(graph, 0, 59, (BitSet) unitsGuessed.clone());
+				}));
+			}
+			int[] first = answers.get(0).get(10, TimeUnit.SECONDS);
+			for (Future<int[]> answer : answers) {
+				assertSame(first, answer.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(1, service.connectedCalls.get());
+			assertArrayEquals(new GeographicalService().getConnected(graph, 0, 59, unitsGuessed), first);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
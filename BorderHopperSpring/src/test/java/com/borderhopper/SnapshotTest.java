@@ -0,0 +1,144 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.borderhopper.GeographicalUnit.GeographicalType;
+
+class SnapshotTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void loadsWhatWasSaved() throws Exception {
+		Path file = directory.resolve("borderhopper.snapshot");
+		GeographicalService savedService = new GeographicalService();
+		GeometryCache savedCache = new GeometryCache();
+		fill(savedService, savedCache);
+		snapshot(savedService, savedCache, file).save();
+		assertTrue(Files.isRegularFile(file));
+
+		GeographicalService loadedService = new GeographicalService();
+		GeometryCache loadedCache = new GeometryCache();
+		assertTrue(snapshot(loadedService, loadedCache, file).load());
+		for (GeographicalType geographicalType : GeographicalType.values()) {
+			String type = geographicalType.name();
+			GraphManager saved = savedService.current().graph(type);
+			GraphManager loaded = loadedService.current().graph(type);
+			assertArrayEquals(saved.unitNames, loaded.unitNames, type);
+			assertArrayEquals(saved.offsets, loaded.offsets, type);
+			assertArrayEquals(saved.targets, loaded.targets, type);
+			assertArrayEquals(saved.component, loaded.component, type);
+			assertEquals(saved.componentCount, loaded.componentCount, type);
+			for (String unitName : saved.unitNames) {
+				assertEntryEquals(savedCache.unit(type, unitName), loadedCache.unit(type, unitName));
+				assertEntryEquals(savedCache.twkbUnit(type, unitName), loadedCache.twkbUnit(type, unitName));
+			}
+			assertEntryEquals(savedCache.layer(type), loadedCache.layer(type));
+			assertEntryEquals(savedCache.twkbLayer(type), loadedCache.twkbLayer(type));
+		}
+		// Units without geometries stay without them
+		assertNull(loadedCache.twkbUnit(GeographicalType.Okrug.name(), "C"));
+		assertNull(loadedCache.layer(GeographicalType.Tablica.name()));
+	}
+
+	@Test
+	void rejectsOtherFormats() throws Exception {
+		Path file = directory.resolve("borderhopper.snapshot");
+		GeographicalService service = new GeographicalService();
+		GeometryCache cache = new GeometryCache();
+		fill(service, cache);
+		snapshot(service, cache, file).save();
+		byte[] saved = Files.readAllBytes(file);
+
+		byte[] otherMagic = saved.clone();
+		ByteBuffer.wrap(otherMagic).putInt(0, 0x12345678);
+		assertLoadFails(otherMagic, file);
+
+		byte[] otherVersion = saved.clone();
+		ByteBuffer.wrap(otherVersion).putInt(4, 2);
+		assertLoadFails(otherVersion, file);
+
+		assertLoadFails(Arrays.copyOf(saved, saved.length / 2), file);
+		assertLoadFails(new byte[0], file);
+
+		Files.delete(file);
+		assertFalse(snapshot(new GeographicalService(), new GeometryCache(), file).load());
+		assertFalse(snapshot(new GeographicalService(), new GeometryCache(), null).load());
+	}
+
+	private void assertLoadFails(byte[] content, Path file) throws Exception {
+		Files.write(file, content);
+		GeographicalService service = new GeographicalService();
+		assertFalse(snapshot(service, new GeometryCache(), file).load());
+		assertTrue(service.current().graphs().isEmpty());
+	}
+
+	// Every type a small graph of its own, with a few units and a whole type missing their geometries
+	private static void fill(GeographicalService service, GeometryCache cache) {
+		Map<String, GraphManager> graphs = new HashMap<>();
+		Map<String, Map<String, GeometryCache.Entry>> units = new HashMap<>();
+		Map<String, GeometryCache.Entry> layers = new HashMap<>();
+		Map<String, Map<String, GeometryCache.Entry>> twkbUnits = new HashMap<>();
+		Map<String, GeometryCache.Entry> twkbLayers = new HashMap<>();
+		for (GeographicalType geographicalType : GeographicalType.values()) {
+			String type = geographicalType.name();
+			String[] unitNames = { "A", "B", "C", "D", "Ž" + type };
+			List<Set<String>> connected = List.of(Set.of("B"), Set.of("A", "C"), Set.of("B"), Set.of(), Set.of());
+			graphs.put(type, new GraphManager(type, unitNames, connected));
+
+			Map<String, GeometryCache.Entry> typeUnits = new HashMap<>();
+			Map<String, GeometryCache.Entry> typeTwkbUnits = new HashMap<>();
+			for (String unitName : unitNames) {
+				typeUnits.put(unitName, GeometryCache.entry(("{\"type\":\"Point\",\"name\":\"" + type + unitName + "\"}").getBytes(StandardCharsets.UTF_8)));
+				if (!(geographicalType == GeographicalType.Okrug && unitName.equals("C"))) {
+					typeTwkbUnits.put(unitName, GeometryCache.entry(new byte[] { 0x01, 0x00, (byte) unitName.charAt(0) }));
+				}
+			}
+			units.put(type, typeUnits);
+			twkbUnits.put(type, typeTwkbUnits);
+			if (geographicalType != GeographicalType.Tablica) {
+				layers.put(type, GeometryCache.entry(("[\"" + type + "\"]").getBytes(StandardCharsets.UTF_8)));
+			}
+			twkbLayers.put(type, GeometryCache.entry(new byte[0]));
+		}
+		service.init(graphs);
+		cache.init(units, layers, twkbUnits, twkbLayers);
+	}
+
+	private static Snapshot snapshot(GeographicalService service, GeometryCache cache, Path file) {
+		Snapshot snapshot = new Snapshot();
+		ReflectionTestUtils.setField(snapshot, "geographicalService", service);
+		ReflectionTestUtils.setField(snapshot, "geometryCache", cache);
+		ReflectionTestUtils.setField(snapshot, "path", file == null ? "" : file.toString());
+		return snapshot;
+	}
+
+	private static void assertEntryEquals(GeometryCache.Entry expected, GeometryCache.Entry actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertArrayEquals(expected.content(), actual.content());
+		assertArrayEquals(expected.gzip(), actual.gzip());
+		assertEquals(expected.eTag(), actual.eTag());
+	}
+}
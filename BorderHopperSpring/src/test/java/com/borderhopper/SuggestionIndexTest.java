@@ -0,0 +1,71 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SuggestionIndexTest {
+
+	// Every unit scored from scratch, sorted by score and then by unit order
+	private static List<String> reference(String[] unitNames, String search, int topN) {
+		List<Integer> units = new ArrayList<>();
+		List<Integer> scores = new ArrayList<>();
+		for (int unit = 0; unit < unitNames.length; unit++) {
+			units.add(unit);
+			scores.add(FuzzyScorer.score(SuggestionIndex.normalize(search), SuggestionIndex.normalize(unitNames[unit])));
+		}
+		return units.stream()
+				.filter(unit -> scores.get(unit) != -1)
+				.sorted(Comparator.comparing(scores::get))
+				.limit(topN)
+				.map(unit -> unitNames[unit])
+				.toList();
+	}
+
+	// Typing the letter q after two letters that are skipped lowers the score of the long name from 20100 to 20099
+	@Test
+	void longerSearchFindsNameItsPrefixMissed() {
+		String longName = "q" + "x".repeat(99);
+		SuggestionIndex index = new SuggestionIndex("Test", new String[] { longName, "Beograd" });
+		assertEquals(List.of("Beograd"), index.similarNames("zz", 10));
+		assertEquals(List.of(longName), index.similarNames("zzq", 10));
+	}
+
+	@Test
+	void typedSearchesMatchReference() {
+		Random random = new Random(42);
+		String letters = "abcdeirs ";
+		for (int test = 0; test < 200; test++) {
+			String[] unitNames = new String[1 + random.nextInt(50)];
+			for (int unit = 0; unit < unitNames.length; unit++) {
+				unitNames[unit] = randomString(random, letters, random.nextInt(random.nextBoolean() ? 12 : 120));
+			}
+			SuggestionIndex index = new SuggestionIndex("Test", unitNames);
+			// Searches are typed a letter at a time, sometimes going back, so the cache sees all of their prefixes
+			for (int search = 0; search < 5; search++) {
+				String typed = randomString(random, letters, 1 + random.nextInt(25));
+				for (int length = 1; length <= typed.length(); length++) {
+					String prefix = typed.substring(0, length);
+					int topN = 1 + random.nextInt(10);
+					assertEquals(reference(unitNames, prefix, topN), index.similarNames(prefix, topN), prefix);
+					if (length > 2 && random.nextInt(8) == 0) {
+						length -= 2;
+					}
+				}
+			}
+		}
+	}
+
+	private static String randomString(Random random, String letters, int length) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			builder.append(letters.charAt(random.nextInt(letters.length())));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,56 @@
+package com.borderhopper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// Small graphs for the tests of the graph searches, built the way GeographicalService builds them from the database
+final class TestGraphs {
+
+	private TestGraphs() {
+	}
+
+	// Units are sorted by name like in GraphManager, every edge is "A-B" and a plain name adds a unit without neighbours
+	static GraphManager of(String... edgesAndUnits) {
+		Map<String, Set<String>> adjacency = new LinkedHashMap<>();
+		for (String edge : edgesAndUnits) {
+			String[] units = edge.split("-");
+			for (String unit : units) {
+				adjacency.computeIfAbsent(unit, key -> new HashSet<>());
+			}
+			if (units.length == 2) {
+				adjacency.get(units[0]).add(units[1]);
+				adjacency.get(units[1]).add(units[0]);
+			}
+		}
+		String[] unitNames = adjacency.keySet().stream().sorted().toArray(String[]::new);
+		List<Set<String>> connectedUnitNames = new ArrayList<>();
+		for (String unitName : unitNames) {
+			connectedUnitNames.add(adjacency.get(unitName));
+		}
+		return new GraphManager("Test", unitNames, connectedUnitNames);
+	}
+
+	// Random sparse graph with about edgesPerUnit neighbours per unit, usually with a few components
+	static GraphManager random(Random random, int size, double edgesPerUnit) {
+		List<String> edges = new ArrayList<>();
+		for (int unit = 0; unit < size; unit++) {
+			edges.add(name(unit));
+		}
+		for (int edge = 0; edge < size * edgesPerUnit / 2; edge++) {
+			int from = random.nextInt(size);
+			int to = random.nextInt(size);
+			edges.add(name(from) + "-" + name(to));
+		}
+		return of(edges.toArray(new String[0]));
+	}
+
+	// Names that sort in unit order, so unit i of a random graph has id i
+	private static String name(int unit) {
+		return String.format("U%04d", unit);
+	}
+}
@@ -0,0 +1,239 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+class TwkbWriterTest {
+
+	private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+	// Reads what TwkbWriter writes: no bounding boxes, sizes, ids or extended dimensions
+	private static class TwkbReader {
+		private final byte[] bytes;
+		private int position;
+		private double scale;
+		private long x, y;
+
+		TwkbReader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		Geometry read() {
+			int header = bytes[position++] & 0xFF;
+			int type = header & 0x0F;
+			int precision = (int) unZigZag(header >> 4);
+			int metadata = bytes[position++] & 0xFF;
+			assertEquals(0, metadata & ~0x10, "Only the empty flag is expected");
+			boolean empty = (metadata & 0x10) != 0;
+			scale = Math.pow(10, precision);
+			x = 0;
+			y = 0;
+			switch (type) {
+				case 1:
+					return empty ? geometryFactory.createPoint() : geometryFactory.createPoint(point());
+				case 2:
+					return empty ? geometryFactory.createLineString() : geometryFactory.createLineString(points());
+				case 3:
+					return empty ? geometryFactory.createPolygon() : polygon();
+				case 4: {
+					Point[] points = new Point[empty ? 0 : (int) varint()];
+					for (int i = 0; i < points.length; i++) {
+						points[i] = geometryFactory.createPoint(point());
+					}
+					return geometryFactory.createMultiPoint(points);
+				}
+				case 5: {
+					LineString[] lines = new LineString[empty ? 0 : (int) varint()];
+					for (int i = 0; i < lines.length; i++) {
+						lines[i] = geometryFactory.createLineString(points());
+					}
+					return geometryFactory.createMultiLineString(lines);
+				}
+				case 6: {
+					Polygon[] polygons = new Polygon[empty ? 0 : (int) varint()];
+					for (int i = 0; i < polygons.length; i++) {
+						polygons[i] = polygon();
+					}
+					return geometryFactory.createMultiPolygon(polygons);
+				}
+				case 7: {
+					Geometry[] geometries = new Geometry[empty ? 0 : (int) varint()];
+					for (int i = 0; i < geometries.length; i++) {
+						geometries[i] = read();
+					}
+					return geometryFactory.createGeometryCollection(geometries);
+				}
+				default:
+					throw new AssertionError("Unknown TWKB type " + type);
+			}
+		}
+
+		boolean isDone() {
+			return position == bytes.length;
+		}
+
+		private Polygon polygon() {
+			int rings = (int) varint();
+			if (rings == 0) {
+				return geometryFactory.createPolygon();
+			}
+			LinearRing shell = geometryFactory.createLinearRing(points());
+			LinearRing[] holes = new LinearRing[rings - 1];
+			for (int i = 0; i < holes.length; i++) {
+				holes[i] = geometryFactory.createLinearRing(points());
+			}
+			return geometryFactory.createPolygon(shell, holes);
+		}
+
+		private Coordinate[] points() {
+			Coordinate[] points = new Coordinate[(int) varint()];
+			for (int i = 0; i < points.length; i++) {
+				points[i] = point();
+			}
+			return points;
+		}
+
+		private Coordinate point() {
+			x += unZigZag(varint());
+			y += unZigZag(varint());
+			return new Coordinate(x / scale, y / scale);
+		}
+
+		private long varint() {
+			long value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = bytes[position++];
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+		}
+
+		private static long unZigZag(long value) {
+			return (value >>> 1) ^ -(value & 1);
+		}
+	}
+
+	private static Geometry roundTrip(Geometry geometry, int precision) {
+		TwkbReader reader = new TwkbReader(TwkbWriter.write(geometry, precision));
+		Geometry read = reader.read();
+		assertTrue(reader.isDone(), "Bytes left after the geometry");
+		return read;
+	}
+
+	// The geometry with its coordinates rounded the way TWKB stores them
+	private static Geometry rounded(Geometry geometry, int precision) {
+		double scale = Math.pow(10, precision);
+		Geometry rounded = geometry.copy();
+		rounded.apply(new CoordinateSequenceFilter() {
+			@Override
+			public void filter(CoordinateSequence sequence, int i) {
+				sequence.setOrdinate(i, 0, Math.round(sequence.getX(i) * scale) / scale);
+				sequence.setOrdinate(i, 1, Math.round(sequence.getY(i) * scale) / scale);
+			}
+
+			@Override
+			public boolean isDone() {
+				return false;
+			}
+
+			@Override
+			public boolean isGeometryChanged() {
+				return true;
+			}
+		});
+		return rounded;
+	}
+
+	private static void assertRoundTrip(String wkt, int precision) throws ParseException {
+		Geometry geometry = new WKTReader(geometryFactory).read(wkt);
+		assertEquals(rounded(geometry, precision).toText(), roundTrip(geometry, precision).toText(), wkt + " / " + precision);
+	}
+
+	// The example of the TWKB specification, and the same point with the precision in the upper bits of the first byte
+	@Test
+	void writesSpecificationExample() throws ParseException {
+		Geometry point = new WKTReader(geometryFactory).read("POINT (1 2)");
+		assertArrayEquals(new byte[] { 0x01, 0x00, 0x02, 0x04 }, TwkbWriter.write(point, 0));
+		assertArrayEquals(new byte[] { (byte) 0xA1, 0x00, (byte) 0xC0, (byte) 0x9A, 0x0C, (byte) 0x80, (byte) 0xB5, 0x18 }, TwkbWriter.write(point, 5));
+	}
+
+	@Test
+	void roundTripsEveryType() throws ParseException {
+		String[] wkts = {
+				"POINT (20.45678912 44.81234567)",
+				"POINT (-180 -90)",
+				"LINESTRING (0 0, 1.5 -2.25, -3.125 4)",
+				"POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 3, 3 3, 2 2), (5 5, 5 6, 6 6, 5 5))",
+				"MULTIPOINT ((1 1), (-1 -1), (2.5 3.5))",
+				"MULTILINESTRING ((0 0, 1 1), (5 5, 4 4, 3 5))",
+				"MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0)), ((10 10, 12 10, 12 12, 10 10), (10.5 10.2, 11 10.2, 11 10.5, 10.5 10.2)))",
+				"GEOMETRYCOLLECTION (POINT (1 2), LINESTRING (3 4, 5 6), POLYGON ((0 0, 1 0, 1 1, 0 0)))",
+				"GEOMETRYCOLLECTION (MULTIPOLYGON (((0 0, 1 0, 1 1, 0 0))), GEOMETRYCOLLECTION (POINT (7 8), POINT EMPTY))",
+		};
+		for (String wkt : wkts) {
+			for (int precision : new int[] { 5, 2, 0, -1 }) {
+				assertRoundTrip(wkt, precision);
+			}
+		}
+	}
+
+	@Test
+	void roundTripsEmptyGeometries() throws ParseException {
+		String[] wkts = { "POINT EMPTY", "LINESTRING EMPTY", "POLYGON EMPTY", "MULTIPOINT EMPTY", "MULTILINESTRING EMPTY",
+				"MULTIPOLYGON EMPTY", "GEOMETRYCOLLECTION EMPTY" };
+		for (String wkt : wkts) {
+			Geometry geometry = new WKTReader(geometryFactory).read(wkt);
+			assertEquals(2, TwkbWriter.write(geometry, 5).length, wkt);
+			assertRoundTrip(wkt, 5);
+		}
+		// A part without rings in a multipolygon that isn't empty itself
+		Polygon square = (Polygon) new WKTReader(geometryFactory).read("POLYGON ((0 0, 1 0, 1 1, 0 0))");
+		Geometry withEmptyPart = geometryFactory.createMultiPolygon(new Polygon[] { square, geometryFactory.createPolygon() });
+		assertEquals(withEmptyPart.toText(), roundTrip(withEmptyPart, 5).toText());
+	}
+
+	@Test
+	void roundTripsRandomPolygons() {
+		Random random = new Random(42);
+		for (int test = 0; test < 200; test++) {
+			Polygon[] polygons = new Polygon[1 + random.nextInt(4)];
+			for (int p = 0; p < polygons.length; p++) {
+				Coordinate[] ring = new Coordinate[4 + random.nextInt(50)];
+				for (int i = 0; i < ring.length - 1; i++) {
+					ring[i] = new Coordinate(random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90);
+				}
+				ring[ring.length - 1] = ring[0];
+				polygons[p] = geometryFactory.createPolygon(ring);
+			}
+			Geometry geometry = geometryFactory.createMultiPolygon(polygons);
+			int precision = random.nextInt(8);
+			assertEquals(rounded(geometry, precision).toText(), roundTrip(geometry, precision).toText());
+		}
+	}
+
+	@Test
+	void rejectsPrecisionOutOfRange() {
+		Geometry point = geometryFactory.createPoint(new Coordinate(1, 2));
+		assertThrows(IllegalArgumentException.class, () -> TwkbWriter.write(point, 8));
+		assertThrows(IllegalArgumentException.class, () -> TwkbWriter.write(point, -8));
+	}
+}
@@ -0,0 +1,253 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+
+class VectorTileEncoderTest {
+
+	private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+	private record Feature(long id, List<Integer> tags, int type, List<Integer> geometry) {
+	}
+
+	private record Layer(int version, String name, List<Feature> features, List<String> keys, List<String> values, int extent) {
+	}
+
+	// Reads the fields of a protobuf message, only as far as the tiles use them
+	private static class ProtoReader {
+		private final byte[] bytes;
+		private int position;
+		private int end;
+
+		ProtoReader(byte[] bytes) {
+			this(bytes, 0, bytes.length);
+		}
+
+		private ProtoReader(byte[] bytes, int position, int end) {
+			this.bytes = bytes;
+			this.position = position;
+			this.end = end;
+		}
+
+		boolean hasNext() {
+			return position < end;
+		}
+
+		long varint() {
+			long value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = bytes[position++];
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+		}
+
+		ProtoReader message() {
+			int length = (int) varint();
+			ProtoReader message = new ProtoReader(bytes, position, position + length);
+			position += length;
+			return message;
+		}
+
+		String string() {
+			ProtoReader message = message();
+			return new String(bytes, message.position, message.end - message.position, StandardCharsets.UTF_8);
+		}
+
+		List<Integer> packed() {
+			ProtoReader message = message();
+			List<Integer> values = new ArrayList<>();
+			while (message.hasNext()) {
+				values.add((int) message.varint());
+			}
+			return values;
+		}
+	}
+
+	private static List<Layer> decode(byte[] tile) {
+		List<Layer> layers = new ArrayList<>();
+		ProtoReader reader = new ProtoReader(tile);
+		while (reader.hasNext()) {
+			assertEquals(3 << 3 | 2, reader.varint());
+			ProtoReader layer = reader.message();
+			int version = 1, extent = 4096;
+			String name = null;
+			List<Feature> features = new ArrayList<>();
+			List<String> keys = new ArrayList<>();
+			List<String> values = new ArrayList<>();
+			while (layer.hasNext()) {
+				long key = layer.varint();
+				switch ((int) (key >>> 3)) {
+					case 15 -> version = (int) layer.varint();
+					case 1 -> name = layer.string();
+					case 2 -> features.add(decodeFeature(layer.message()));
+					case 3 -> keys.add(layer.string());
+					case 4 -> {
+						ProtoReader value = layer.message();
+						assertEquals(1 << 3 | 2, value.varint());
+						values.add(value.string());
+					}
+					case 5 -> extent = (int) layer.varint();
+					default -> throw new AssertionError("Unexpected layer field " + (key >>> 3));
+				}
+			}
+			layers.add(new Layer(version, name, features, keys, values, extent));
+		}
+		return layers;
+	}
+
+	private static Feature decodeFeature(ProtoReader feature) {
+		long id = 0;
+		int type = 0;
+		List<Integer> tags = List.of(), geometry = List.of();
+		while (feature.hasNext()) {
+			long key = feature.varint();
+			switch ((int) (key >>> 3)) {
+				case 1 -> id = feature.varint();
+				case 2 -> tags = feature.packed();
+				case 3 -> type = (int) feature.varint();
+				case 4 -> geometry = feature.packed();
+				default -> throw new AssertionError("Unexpected feature field " + (key >>> 3));
+			}
+		}
+		return new Feature(id, tags, type, geometry);
+	}
+
+	// Follows the commands of a polygon geometry and returns its rings, checking that every one is MoveTo, LineTo, ClosePath
+	private static List<int[][]> rings(List<Integer> commands) {
+		List<int[][]> rings = new ArrayList<>();
+		int x = 0, y = 0;
+		int i = 0;
+		while (i < commands.size()) {
+			assertEquals(1 | 1 << 3, commands.get(i++)); // MoveTo with one point
+			x += unZigZag(commands.get(i++));
+			y += unZigZag(commands.get(i++));
+			int lineTo = commands.get(i++);
+			assertEquals(2, lineTo & 7);
+			int count = lineTo >>> 3;
+			int[][] ring = new int[count + 1][];
+			ring[0] = new int[] { x, y };
+			for (int point = 1; point <= count; point++) {
+				x += unZigZag(commands.get(i++));
+				y += unZigZag(commands.get(i++));
+				ring[point] = new int[] { x, y };
+			}
+			assertEquals(7 | 1 << 3, commands.get(i++)); // ClosePath
+			rings.add(ring);
+		}
+		return rings;
+	}
+
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	// Twice the area by the surveyor's formula in tile coordinates, which the spec wants positive for exterior rings
+	private static long area(int[][] ring) {
+		long area = 0;
+		for (int i = 0; i < ring.length; i++) {
+			int[] a = ring[i], b = ring[(i + 1) % ring.length];
+			area += (long) a[0] * b[1] - (long) b[0] * a[1];
+		}
+		return area;
+	}
+
+	private static LinearRing ring(int... coordinates) {
+		Coordinate[] ring = new Coordinate[coordinates.length / 2 + 1];
+		for (int i = 0; i < coordinates.length / 2; i++) {
+			ring[i] = new Coordinate(coordinates[2 * i], coordinates[2 * i + 1]);
+		}
+		ring[ring.length - 1] = ring[0];
+		return geometryFactory.createLinearRing(ring);
+	}
+
+	@Test
+	void encodesLayerAndTags() {
+		VectorTileEncoder encoder = new VectorTileEncoder("Country");
+		encoder.addFeature(7, "Serbia", geometryFactory.createPolygon(ring(0, 0, 10, 0, 10, 10)));
+		encoder.addFeature(9, "Србија", geometryFactory.createPolygon(ring(20, 20, 30, 20, 30, 30)));
+		List<Layer> layers = decode(encoder.encode());
+		assertEquals(1, layers.size());
+		Layer layer = layers.get(0);
+		assertEquals(2, layer.version());
+		assertEquals("Country", layer.name());
+		assertEquals(VectorTileEncoder.EXTENT, layer.extent());
+		assertEquals(List.of("name"), layer.keys());
+		assertEquals(List.of("Serbia", "Србија"), layer.values());
+		assertEquals(2, layer.features().size());
+		assertEquals(7, layer.features().get(0).id());
+		assertEquals(List.of(0, 0), layer.features().get(0).tags());
+		assertEquals(9, layer.features().get(1).id());
+		assertEquals(List.of(0, 1), layer.features().get(1).tags());
+		assertEquals(3, layer.features().get(0).type());
+	}
+
+	// Cursor deltas carry over between rings and polygons and are zigzag encoded, so negative moves stay small
+	@Test
+	void encodesCommandsWithZigZagDeltas() {
+		VectorTileEncoder encoder = new VectorTileEncoder("Test");
+		encoder.addFeature(1, "Square", geometryFactory.createPolygon(ring(2, 2, 2, 5, 5, 5, 5, 2)));
+		List<Integer> commands = decode(encoder.encode()).get(0).features().get(0).geometry();
+		// The ring had a negative area and was reversed to 5,2 5,5 2,5 2,2, so it moves by +3 and -3 which zigzag to 6 and 5
+		assertEquals(List.of(9, 10, 4, 26, 0, 6, 5, 0, 0, 5, 15), commands);
+
+		Polygon first = geometryFactory.createPolygon(ring(10, 10, 20, 10, 20, 20));
+		Polygon second = geometryFactory.createPolygon(ring(0, 0, 5, 0, 5, 5));
+		encoder = new VectorTileEncoder("Test");
+		encoder.addFeature(1, "Both", geometryFactory.createMultiPolygon(new Polygon[] { first, second }));
+		List<int[][]> rings = rings(decode(encoder.encode()).get(0).features().get(0).geometry());
+		assertEquals(2, rings.size());
+		assertArrayEquals(new int[] { 10, 10 }, rings.get(0)[0]);
+		assertArrayEquals(new int[] { 0, 0 }, rings.get(1)[0]);
+	}
+
+	@Test
+	void exteriorRingsArePositiveAndHolesNegative() {
+		// Both windings of the shell and of the hole
+		LinearRing[] shells = { ring(0, 0, 100, 0, 100, 100, 0, 100), ring(0, 0, 0, 100, 100, 100, 100, 0) };
+		LinearRing[] holes = { ring(20, 20, 80, 20, 80, 80, 20, 80), ring(20, 20, 20, 80, 80, 80, 80, 20) };
+		for (LinearRing shell : shells) {
+			for (LinearRing hole : holes) {
+				VectorTileEncoder encoder = new VectorTileEncoder("Test");
+				encoder.addFeature(1, "Hole", geometryFactory.createPolygon(shell, new LinearRing[] { hole }));
+				List<int[][]> rings = rings(decode(encoder.encode()).get(0).features().get(0).geometry());
+				assertEquals(2, rings.size());
+				assertEquals(20000, area(rings.get(0)));
+				assertEquals(-7200, area(rings.get(1)));
+			}
+		}
+	}
+
+	@Test
+	void dropsRingsWithoutArea() {
+		VectorTileEncoder encoder = new VectorTileEncoder("Test");
+		// Collapses into a line once rounded to whole tile units, so the feature has no geometry left
+		Geometry thin = geometryFactory.createPolygon(new Coordinate[] { new Coordinate(0, 0), new Coordinate(10, 0.2),
+				new Coordinate(20, 0.1), new Coordinate(0, 0) });
+		encoder.addFeature(1, "Thin", thin);
+		assertEquals(0, encoder.encode().length);
+
+		encoder.addFeature(2, "Square", geometryFactory.createPolygon(ring(0, 0, 10, 0, 10, 10, 0, 10),
+				new LinearRing[] { ring(1, 1, 1, 1, 2, 1) }));
+		Layer layer = decode(encoder.encode()).get(0);
+		assertEquals(1, layer.features().size());
+		assertEquals(2, layer.features().get(0).id());
+		assertEquals(List.of("Square"), layer.values());
+		assertEquals(1, rings(layer.features().get(0).geometry()).size());
+		assertTrue(area(rings(layer.features().get(0).geometry()).get(0)) > 0);
+	}
+}
@@ -0,0 +1,212 @@
+package com.borderhopper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ZeroOneBfsTest {
+
+	// A-B-C-D-E and the shorter A-F-G-E, W only borders E, X-Y is a component of its own and Z has no neighbours
+	private static final GraphManager graph = TestGraphs.of("A-B", "B-C", "C-D", "D-E", "A-F", "F-G", "G-E", "W-E", "X-Y", "Z");
+
+	private final GeographicalService service = new GeographicalService();
+
+	// The map based searches that GeographicalService used before ZeroOneBfs, without their second enqueue of every
+	// unit, which only processed units again after their neighbours were already labelled
+	private static int referenceDistanceRemaining(GraphManager graph, String start, String end, Set<String> unitsGuessed) {
+		Map<String, Integer> distance = new HashMap<>();
+		Deque<String> queue = new LinkedList<String>();
+		queue.add(end);
+		distance.put(end, 0);
+		boolean foundStart = false;
+		while (!queue.isEmpty() && !foundStart) {
+			String front = queue.poll();
+			int frontDist = distance.get(front);
+			for (String neighbour : neighbours(graph, front)) {
+				if (distance.containsKey(neighbour)) {
+					continue;
+				}
+				if (unitsGuessed.contains(neighbour)) {
+					distance.put(neighbour, frontDist);
+					queue.addFirst(neighbour);
+				}
+				else {
+					distance.put(neighbour, frontDist + 1);
+					queue.addLast(neighbour);
+				}
+				if (neighbour.equals(start)) {
+					foundStart = true;
+					break;
+				}
+			}
+		}
+		if (!foundStart) {
+			return -1;
+		}
+		return distance.get(start) - 1;
+	}
+
+	private static String referenceNextUnit(GraphManager graph, String start, String end, Set<String> unitsGuessed) {
+		Map<String, String> parent = new HashMap<>();
+		Deque<String> queue = new LinkedList<String>();
+		queue.add(end);
+		parent.put(end, end);
+		boolean foundStart = false;
+		while (!queue.isEmpty() && !foundStart) {
+			String front = queue.poll();
+			for (String neighbour : neighbours(graph, front)) {
+				if (parent.containsKey(neighbour)) {
+					continue;
+				}
+				parent.put(neighbour, front);
+				if (unitsGuessed.contains(neighbour)) {
+					queue.addFirst(neighbour);
+				}
+				else {
+					queue.addLast(neighbour);
+				}
+				if (neighbour.equals(start)) {
+					foundStart = true;
+					break;
+				}
+			}
+		}
+		if (!foundStart) {
+			return null;
+		}
+		String current = parent.get(start);
+		while (!current.equals(end)) {
+			if (!unitsGuessed.contains(current)) {
+				return current;
+			}
+			current = parent.get(current);
+		}
+		return null;
+	}
+
+	private static Set<String> neighbours(GraphManager graph, String unitName) {
+		int unit = graph.unitId(unitName);
+		Set<String> neighbours = new HashSet<>();
+		for (int e = graph.offsets[unit]; e < graph.offsets[unit + 1]; e++) {
+			neighbours.add(graph.unitNames[graph.targets[e]]);
+		}
+		return neighbours;
+	}
+
+	@Test
+	void matchesReferenceOnFixedGraph() {
+		assertAnswers("A", "E", Set.of(), 2, "F");
+		assertAnswers("E", "A", Set.of(), 2, "G");
+		assertAnswers("A", "E", Set.of("F"), 1, "G");
+		assertAnswers("A", "E", Set.of("B", "C"), 1, "D");
+		assertAnswers("A", "E", Set.of("B", "C", "D"), 0, null);
+		assertAnswers("A", "E", Set.of("F", "G"), 0, null);
+		// Guesses off every route and in other components change nothing
+		assertAnswers("A", "E", Set.of("W", "X", "Z"), 2, "F");
+		// Neighbours have nothing in between
+		assertAnswers("W", "E", Set.of(), 0, null);
+		assertAnswers("W", "E", Set.of("G"), 0, null);
+		assertAnswers("W", "A", Set.of(), 3, "E");
+		assertAnswers("W", "A", Set.of("E"), 2, "G");
+	}
+
+	@Test
+	void unreachableTargets() {
+		assertAnswers("A", "X", Set.of(), -1, null);
+		assertAnswers("A", "X", Set.of("B", "Y"), -1, null);
+		assertAnswers("A", "Z", Set.of(), -1, null);
+		assertAnswers("Z", "A", Set.of("F"), -1, null);
+		assertAnswers("X", "Y", Set.of(), 0, null);
+	}
+
+	@Test
+	void wholeComponentSearch() {
+		ZeroOneBfs bfs = ZeroOneBfs.acquire();
+		try {
+			assertEquals(-1, bfs.run(graph, -1, id("E"), unitSet("B", "C")));
+			// Entering a unit costs 1 unless it is guessed, end itself costs nothing
+			assertEquals(0, bfs.distance(id("E")));
+			assertEquals(1, bfs.distance(id("D")));
+			assertEquals(1, bfs.distance(id("C")));
+			assertEquals(1, bfs.distance(id("B")));
+			assertEquals(2, bfs.distance(id("A")));
+			assertEquals(1, bfs.distance(id("G")));
+			assertEquals(2, bfs.distance(id("F")));
+			assertEquals(1, bfs.distance(id("W")));
+			assertEquals(8, bfs.visitedCount());
+			assertFalse(bfs.visited(id("X")));
+			assertFalse(bfs.visited(id("Z")));
+		} finally {
+			bfs.release();
+		}
+	}
+
+	@Test
+	void matchesReferenceOnRandomGraphs() {
+		Random random = new Random(42);
+		for (int test = 0; test < 300; test++) {
+			GraphManager graph = TestGraphs.random(random, 2 + random.nextInt(60), 1 + random.nextDouble() * 3);
+			int start = random.nextInt(graph.size());
+			int end = random.nextInt(graph.size());
+			if (start == end) {
+				continue;
+			}
+			BitSet unitsGuessed = new BitSet();
+			Set<String> guessedNames = new HashSet<>();
+			for (int unit = 0; unit < graph.size(); unit++) {
+				if (unit != start && unit != end && random.nextInt(4) == 0) {
+					unitsGuessed.set(unit);
+					guessedNames.add(graph.unitNames[unit]);
+				}
+			}
+			String startName = graph.unitNames[start];
+			String endName = graph.unitNames[end];
+			int distance = service.distanceRemaining(graph, start, end, unitsGuessed);
+			assertEquals(referenceDistanceRemaining(graph, startName, endName, guessedNames), distance, startName + " / " + endName);
+
+			// Optimal paths are rarely unique here, so the hint only has to be one that brings the player a step closer
+			int next = service.getNextUnit(graph, start, end, unitsGuessed);
+			assertEquals(referenceNextUnit(graph, startName, endName, guessedNames) == null, next == -1, startName + " / " + endName);
+			if (next != -1) {
+				assertFalse(unitsGuessed.get(next) || next == start || next == end);
+				BitSet withNext = (BitSet) unitsGuessed.clone();
+				withNext.set(next);
+				assertEquals(distance - 1, service.distanceRemaining(graph, start, end, withNext));
+			}
+		}
+	}
+
+	private void assertAnswers(String start, String end, Set<String> unitsGuessed, int distance, String next) {
+		String game = start + " / " + end + " / " + unitsGuessed;
+		BitSet units = unitSet(unitsGuessed.toArray(new String[0]));
+		assertEquals(distance, referenceDistanceRemaining(graph, start, end, unitsGuessed), game);
+		assertEquals(next, referenceNextUnit(graph, start, end, unitsGuessed), game);
+		assertEquals(distance, service.distanceRemaining(graph, id(start), id(end), units), game);
+		int nextUnit = service.getNextUnit(graph, id(start), id(end), units);
+		assertEquals(next, nextUnit == -1 ? null : graph.unitNames[nextUnit], game);
+		assertTrue(next == null || !unitsGuessed.contains(next), game);
+	}
+
+	private static int id(String unitName) {
+		return graph.unitId(unitName);
+	}
+
+	private static BitSet unitSet(String... unitNames) {
+		BitSet units = new BitSet(graph.size());
+		for (String unitName : unitNames) {
+			units.set(id(unitName));
+		}
+		return units;
+	}
+}
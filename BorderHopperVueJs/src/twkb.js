@@ -0,0 +1,107 @@
+// Decoders for the application/x-twkb responses of the geometry endpoints, producing GeoJSON geometry objects for Leaflet
+
+const GEOMETRY_TYPES = ['', 'Point', 'LineString', 'Polygon', 'MultiPoint', 'MultiLineString', 'MultiPolygon', 'GeometryCollection'];
+
+class Reader {
+  constructor(bytes, offset = 0) {
+    this.bytes = bytes;
+    this.offset = offset;
+  }
+
+  varint() {
+    let value = 0;
+    let factor = 1;
+    let byte;
+    do {
+      byte = this.bytes[this.offset++];
+      value += (byte & 0x7f) * factor;
+      factor *= 128;
+    } while (byte & 0x80);
+    return value;
+  }
+
+  signedVarint() {
+    const value = this.varint();
+    return value % 2 === 0 ? value / 2 : -(value + 1) / 2;
+  }
+}
+
+function readGeometry(reader) {
+  const header = reader.bytes[reader.offset++];
+  const metadata = reader.bytes[reader.offset++];
+  const type = GEOMETRY_TYPES[header & 0x0f];
+  const precision = (header >> 4) % 2 === 0 ? (header >> 4) / 2 : -((header >> 4) + 1) / 2;
+  const scale = Math.pow(10, precision);
+  if (metadata & 0x10) {
+    return type === 'GeometryCollection' ? { type, geometries: [] } : { type, coordinates: [] };
+  }
+
+  // Deltas continue from the previous point across rings and parts
+  let x = 0;
+  let y = 0;
+  const readPoints = (count) => {
+    const points = new Array(count);
+    for (let i = 0; i < count; i++) {
+      x += reader.signedVarint();
+      y += reader.signedVarint();
+      points[i] = [x / scale, y / scale];
+    }
+    return points;
+  };
+  const readPolygon = () => {
+    const rings = new Array(reader.varint());
+    for (let i = 0; i < rings.length; i++) {
+      rings[i] = readPoints(reader.varint());
+    }
+    return rings;
+  };
+  const readParts = (readPart) => {
+    const parts = new Array(reader.varint());
+    for (let i = 0; i < parts.length; i++) {
+      parts[i] = readPart();
+    }
+    return parts;
+  };
+
+  switch (type) {
+    case 'Point':
+      return { type, coordinates: readPoints(1)[0] };
+    case 'LineString':
+      return { type, coordinates: readPoints(reader.varint()) };
+    case 'Polygon':
+      return { type, coordinates: readPolygon() };
+    case 'MultiPoint':
+      return { type, coordinates: readParts(() => readPoints(1)[0]) };
+    case 'MultiLineString':
+      return { type, coordinates: readParts(() => readPoints(reader.varint())) };
+    case 'MultiPolygon':
+      return { type, coordinates: readParts(readPolygon) };
+    case 'GeometryCollection':
+      return { type, geometries: readParts(() => readGeometry(reader)) };
+    default:
+      throw new Error('Unsupported TWKB geometry type ' + (header & 0x0f));
+  }
+}
+
+// One geometry, as returned by /api/geometry/{unitName}
+export function decodeTwkb(buffer) {
+  return readGeometry(new Reader(new Uint8Array(buffer)));
+}
+
+// All geometries of a type, as returned by /api/geometries: [{ name, geometry }]
+export function decodeTwkbLayer(buffer) {
+  const bytes = new Uint8Array(buffer);
+  const reader = new Reader(bytes);
+  const decoder = new TextDecoder();
+  const units = [];
+  while (reader.offset < bytes.length) {
+    const nameLength = reader.varint();
+    const name = decoder.decode(bytes.subarray(reader.offset, reader.offset + nameLength));
+    reader.offset += nameLength;
+    const geometryLength = reader.varint();
+    const geometryEnd = reader.offset + geometryLength;
+    units.push({ name, geometry: readGeometry(new Reader(bytes, reader.offset)) });
+    reader.offset = geometryEnd;
+  }
+  return units;
+}